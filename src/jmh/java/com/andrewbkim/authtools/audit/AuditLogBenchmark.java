@@ -0,0 +1,59 @@
+package com.andrewbkim.authtools.audit;
+
+import com.andrewbkim.authtools.config.AuditProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * What a request thread pays to audit an event while the writer is draining to disk on
+ * its own thread. This is the only cost the audit log adds to the request path; compare it
+ * with the microseconds to milliseconds of {@code UserServiceBenchmark}. Nothing throttles
+ * the producers here, so the writer falls behind and the full-buffer path is measured too.
+ * Run with the gc profiler to confirm that publishing allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class AuditLogBenchmark {
+
+    private Path directory;
+    private AuditLog auditLog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audit-log");
+        AuditProperties properties = new AuditProperties();
+        properties.setDirectory(directory);
+        auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+        auditLog.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        auditLog.stop();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void recordRejection() {
+        auditLog.record(AuditEvent.Type.REGISTER, AuditEvent.Outcome.REJECTED,
+                "user@bench.example", null, "Email already in use");
+    }
+
+    @Benchmark
+    public void recordSuccess() {
+        auditLog.recordAfterCommit(AuditEvent.Type.CONFIRM, null, "c2lnbmVkLXRva2VuLWZvci1iZW5jaG1hcms");
+    }
+}
@@ -0,0 +1,96 @@
+package com.andrewbkim.authtools.exception;
+
+import com.andrewbkim.authtools.controller.RegistrationController;
+import com.andrewbkim.authtools.dto.RegistrationRequest;
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a rejected request into a JSON error body: exception construction, the
+ * handler, and the bytes written to the response. The {@code legacy*} benchmarks repeat
+ * the previous approach (a new exception with a stack trace and a map serialized by
+ * Jackson per error) for comparison; run with the gc profiler to see allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RestExceptionHandlerBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RestExceptionHandler handler =
+            new RestExceptionHandler(new AuthMetrics(new SimpleMeterRegistry()), objectMapper);
+    private final HttpHeaders headers = new HttpHeaders();
+    private MethodArgumentNotValidException validationException;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        RegistrationRequest target = new RegistrationRequest();
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(target, "registrationRequest");
+        bindingResult.addError(new FieldError("registrationRequest", "email", "Email should be a valid email address"));
+        bindingResult.addError(new FieldError("registrationRequest", "password", "Password be at least 8 characters long"));
+        MethodParameter parameter = new MethodParameter(
+                RegistrationController.class.getMethod("register", RegistrationRequest.class), 0);
+        validationException = new MethodArgumentNotValidException(parameter, bindingResult);
+    }
+
+    @Benchmark
+    public Object duplicateEmailConflict() {
+        ResponseEntity<Object> response = rejected(RegistrationException.EMAIL_IN_USE);
+        return response.getBody();
+    }
+
+    @Benchmark
+    public byte[] legacyDuplicateEmailConflict() throws Exception {
+        RuntimeException ex = rejectedWithStackTrace(new RuntimeException("Email already in use"));
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return objectMapper.writeValueAsBytes(new ResponseEntity<>(error, HttpStatus.CONFLICT).getBody());
+    }
+
+    @Benchmark
+    public Object validationFailure() {
+        ResponseEntity<Object> response = handler.handleMethodArgumentNotValid(
+                validationException, headers, HttpStatus.BAD_REQUEST, null);
+        return response.getBody();
+    }
+
+    @Benchmark
+    public byte[] legacyValidationFailure() throws Exception {
+        Map<String, String> errors = new HashMap<>();
+        validationException.getBindingResult().getAllErrors().forEach(error ->
+                errors.put(((FieldError) error).getField(), error.getDefaultMessage()));
+        return objectMapper.writeValueAsBytes(new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST).getBody());
+    }
+
+    /**
+     * Throws and catches through a few frames, as a rejection does on its way out of the service.
+     */
+    private ResponseEntity<Object> rejected(RegistrationException rejection) {
+        try {
+            throw rejection;
+        } catch (RegistrationException ex) {
+            return handler.handleRegistrationException(ex);
+        }
+    }
+
+    private static RuntimeException rejectedWithStackTrace(RuntimeException rejection) {
+        try {
+            throw rejection;
+        } catch (RuntimeException ex) {
+            return ex;
+        }
+    }
+}
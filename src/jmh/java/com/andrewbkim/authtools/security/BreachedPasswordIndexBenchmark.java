@@ -0,0 +1,62 @@
+package com.andrewbkim.authtools.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Breached-password lookups against a mapped index of a few million hashes. The hash of
+ * the candidate dominates; the bucket search itself touches a handful of pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BreachedPasswordIndexBenchmark {
+
+    @Param({"4000000"})
+    public int entries;
+
+    private Path directory;
+    private BreachedPasswordIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("breached-index");
+        Path dump = directory.resolve("dump.txt");
+        HexFormat hex = HexFormat.of().withUpperCase();
+        try (Stream<String> lines = IntStream.range(0, entries)
+                .mapToObj(i -> hex.formatHex(BreachedPasswordIndex.sha1("password" + i)))
+                .sorted()) {
+            Files.write(dump, (Iterable<String>) lines::iterator);
+        }
+        BreachedPasswordIndexBuilder.build(dump, directory.resolve("index"));
+        index = BreachedPasswordIndex.open(directory.resolve("index"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean breachedPassword() {
+        return index.contains("password12345");
+    }
+
+    @Benchmark
+    public boolean freshPassword() {
+        return index.contains("a-password-nobody-has-used-yet");
+    }
+}
@@ -0,0 +1,58 @@
+package com.andrewbkim.authtools.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verification token generation under contention. {@link UUID#randomUUID()} draws from a
+ * single shared SecureRandom, so throughput per thread drops as threads are added; the
+ * striped generator spreads threads over independent DRBG instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenGenerationBenchmark {
+
+    private final TokenGenerator striped128 =
+            new StripedSecureRandomTokenGenerator(128, Runtime.getRuntime().availableProcessors() * 2);
+    private final TokenGenerator striped256 =
+            new StripedSecureRandomTokenGenerator(256, Runtime.getRuntime().availableProcessors() * 2);
+
+    @Benchmark
+    @Threads(1)
+    public String randomUuid_1thread() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomUuid_8threads() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String randomUuid_maxThreads() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] striped128_1thread() {
+        return striped128.generate();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] striped128_maxThreads() {
+        return striped128.generate();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] striped256_maxThreads() {
+        return striped256.generate();
+    }
+}
@@ -0,0 +1,56 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.AuthToolsApplication;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.UUID;
+
+/**
+ * Boots the application for benchmarks: a private in-memory H2 database, a random server
+ * port, a mail sender that drops everything, and background jobs pushed out of the way.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(int bcryptStrength) {
+        return new SpringApplicationBuilder(AuthToolsApplication.class, NoOpMailConfig.class)
+                .web(WebApplicationType.SERVLET)
+                // Passed as arguments so they take precedence over application.properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--auth-tools.hashing.calibrate=false",
+                        "--auth-tools.hashing.strength=" + bcryptStrength,
+                        "--auth-tools.hashing.queue-capacity=100000",
+                        "--auth-tools.reaper.enabled=false",
+                        // The benchmark resends to the same address back to back
+                        "--auth-tools.token.resend-interval=PT0S",
+                        "--auth-tools.mail.outbox.poll-interval=PT1H"
+                );
+    }
+
+    @Configuration
+    static class NoOpMailConfig {
+        @Bean
+        @Primary
+        JavaMailSender noOpMailSender() {
+            return new JavaMailSenderImpl() {
+                @Override
+                protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+                    // dropped
+                }
+            };
+        }
+    }
+}
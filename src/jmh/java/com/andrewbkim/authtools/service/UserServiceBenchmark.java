@@ -0,0 +1,98 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.dto.RegistrationRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end service benchmarks for the registration hot paths against in-memory H2.
+ * A low BCrypt cost isolates the database and bookkeeping overhead; the realistic cost
+ * shows how much of a registration is spent hashing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserServiceBenchmark {
+
+    private static final int CONFIRMATIONS_PER_ITERATION = 2_000;
+
+    @Param({"4", "10"})
+    public int bcryptStrength;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private String resendEmail;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start(bcryptStrength);
+        userService = context.getBean(UserService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        resendEmail = "resend@bench.example";
+        userService.registerUser(request(resendEmail));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public void registerUser() {
+        userService.registerUser(request(nextEmail()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(batchSize = CONFIRMATIONS_PER_ITERATION)
+    public void confirmToken(PendingTokens tokens) {
+        userService.confirmToken(tokens.queue.poll());
+    }
+
+    @Benchmark
+    public void resendVerificationToken() {
+        userService.resendVerificationToken(resendEmail);
+    }
+
+    private String nextEmail() {
+        return "user" + sequence.incrementAndGet() + "@bench.example";
+    }
+
+    /**
+     * Confirmation consumes a token, so every iteration gets a fresh supply of unverified users.
+     */
+    @State(Scope.Benchmark)
+    public static class PendingTokens {
+        final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+
+        @Setup(Level.Iteration)
+        public void prepare(UserServiceBenchmark benchmark) {
+            queue.clear();
+            for (int i = 0; i < CONFIRMATIONS_PER_ITERATION; i++) {
+                benchmark.userService.registerUser(request("confirm-" + benchmark.nextEmail()));
+            }
+            List<byte[]> tokens = benchmark.jdbcTemplate.queryForList(
+                    "select t.token from verification_token t join app_user u on u.id = t.user_id " +
+                    "where u.email like 'confirm-%' and u.enabled = false", byte[].class);
+            tokens.forEach(token -> queue.add(Base64.getUrlEncoder().withoutPadding().encodeToString(token)));
+        }
+    }
+
+    private static RegistrationRequest request(String email) {
+        RegistrationRequest request = new RegistrationRequest();
+        request.setEmail(email);
+        request.setPassword("benchmark-password");
+        return request;
+    }
+}
@@ -0,0 +1,94 @@
+package com.andrewbkim.authtools.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects per-request latencies and response statuses for one endpoint.
+ */
+class LatencyRecorder {
+
+    private final String endpoint;
+    private long[] latencies = new long[16_384];
+    private int count;
+    private final Map<Integer, Integer> statuses = new TreeMap<>();
+    private int failures;
+
+    LatencyRecorder(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    synchronized void record(long latencyNanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        statuses.merge(status, 1, Integer::sum);
+    }
+
+    /**
+     * Records a request that never got a response (connection error, timeout).
+     */
+    synchronized void recordFailure(long latencyNanos) {
+        record(latencyNanos, 0);
+        failures++;
+    }
+
+    synchronized Summary summarize(long windowNanos) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int errors = 0;
+        int rejections = 0;
+        for (Map.Entry<Integer, Integer> entry : statuses.entrySet()) {
+            if (entry.getKey() == 0 || entry.getKey() >= 500) {
+                errors += entry.getValue();
+            } else if (entry.getKey() >= 400) {
+                rejections += entry.getValue();
+            }
+        }
+        double seconds = windowNanos / 1e9;
+        return new Summary(endpoint, count, count / seconds, errors, rejections, failures,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1], new TreeMap<>(statuses));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * @param errors     server errors (5xx) and requests that got no response at all
+     * @param rejections client errors (4xx), e.g. a confirm racing a resend for the same user
+     * @param failures   requests that got no response at all
+     */
+    record Summary(String endpoint, int requests, double throughput, int errors, int rejections, int failures,
+                   long p50, long p99, long p999, long max, Map<Integer, Integer> statuses) {
+
+        static final String HEADER = String.format("%-14s %8s %9s %9s %9s %9s %9s %9s %9s  %s",
+                "endpoint", "requests", "req/s", "errors", "4xx", "p50 ms", "p99 ms", "p999 ms", "max ms", "statuses");
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+
+        double rejectionRate() {
+            return requests == 0 ? 0 : (double) rejections / requests;
+        }
+
+        String format() {
+            return String.format("%-14s %8d %9.1f %8.2f%% %8.2f%% %9.2f %9.2f %9.2f %9.2f  %s",
+                    endpoint, requests, throughput, errorRate() * 100, rejectionRate() * 100,
+                    millis(p50), millis(p99), millis(p999), millis(max), statuses);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
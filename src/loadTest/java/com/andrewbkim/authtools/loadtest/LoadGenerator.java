@@ -0,0 +1,145 @@
+package com.andrewbkim.authtools.loadtest;
+
+import com.andrewbkim.authtools.support.FakeSmtpServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An open-model traffic generator: requests are issued at a fixed arrival rate regardless of
+ * how fast the server answers, and latency is measured from each request's scheduled start,
+ * so a stalled server shows up in the tail instead of silently lowering the offered load.
+ */
+class LoadGenerator {
+
+    private static final Pattern TOKEN = Pattern.compile("token=([A-Za-z0-9._~-]+)");
+    private static final String PASSWORD = "load-test-password";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI baseUri;
+    private final FakeSmtpServer smtpServer;
+    private final LoadTestSettings settings;
+
+    private final LatencyRecorder register = new LatencyRecorder("register");
+    private final LatencyRecorder confirm = new LatencyRecorder("confirm");
+    private final LatencyRecorder resend = new LatencyRecorder("resend-token");
+
+    private record PendingConfirmation(String email, String token) {
+    }
+
+    private final BlockingQueue<PendingConfirmation> confirmations = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> unverifiedEmails = new LinkedBlockingQueue<>();
+    private final AtomicLong emailSequence = new AtomicLong();
+    private volatile boolean recording;
+
+    LoadGenerator(URI baseUri, FakeSmtpServer smtpServer, LoadTestSettings settings) {
+        this.baseUri = baseUri;
+        this.smtpServer = smtpServer;
+        this.settings = settings;
+    }
+
+    /**
+     * Runs the warm-up and the measured window.
+     * @return one summary per endpoint, covering only the measured window
+     */
+    List<LatencyRecorder.Summary> run() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::collectTokens, 50, 50, TimeUnit.MILLISECONDS);
+
+        drive(settings.warmup());
+        recording = true;
+        long measuredStart = System.nanoTime();
+        drive(settings.duration());
+        long measuredWindow = System.nanoTime() - measuredStart;
+        recording = false;
+
+        scheduler.shutdownNow();
+        return List.of(register.summarize(measuredWindow), confirm.summarize(measuredWindow),
+                resend.summarize(measuredWindow));
+    }
+
+    private void drive(Duration duration) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        Phaser inFlight = new Phaser(1);
+
+        for (long scheduled = start; scheduled < end; scheduled += intervalNanos) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            inFlight.register();
+            fire(scheduled).whenComplete((ignored, error) -> inFlight.arriveAndDeregister());
+        }
+        inFlight.arriveAndAwaitAdvance();
+    }
+
+    private CompletableFuture<?> fire(long scheduledNanos) {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < settings.confirmShare()) {
+            PendingConfirmation pending = confirmations.poll();
+            if (pending != null) {
+                unverifiedEmails.remove(pending.email());
+                return send(confirm, scheduledNanos,
+                        HttpRequest.newBuilder(baseUri.resolve("/register/confirm?token=" + pending.token())).GET());
+            }
+        } else if (roll < settings.confirmShare() + settings.resendShare()) {
+            String email = unverifiedEmails.poll();
+            if (email != null) {
+                unverifiedEmails.offer(email);
+                return send(resend, scheduledNanos, json("/register/resend-token", "{\"email\":\"" + email + "\"}"));
+            }
+        }
+
+        String email = "load" + emailSequence.incrementAndGet() + "@loadtest.example";
+        return send(register, scheduledNanos, json("/register/", "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .thenAccept(response -> {
+                    if (response.statusCode() == 201) {
+                        unverifiedEmails.offer(email);
+                    }
+                });
+    }
+
+    private HttpRequest.Builder json(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private CompletableFuture<HttpResponse<Void>> send(LatencyRecorder recorder, long scheduledNanos,
+                                                       HttpRequest.Builder request) {
+        return client.sendAsync(request.timeout(settings.requestTimeout()).build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (!recording) {
+                        return;
+                    }
+                    long latency = System.nanoTime() - scheduledNanos;
+                    if (error != null) {
+                        recorder.recordFailure(latency);
+                    } else {
+                        recorder.record(latency, response.statusCode());
+                    }
+                });
+    }
+
+    private void collectTokens() {
+        for (FakeSmtpServer.ReceivedMessage message : smtpServer.drain()) {
+            Matcher matcher = TOKEN.matcher(message.body());
+            if (matcher.find() && !message.recipients().isEmpty()) {
+                confirmations.offer(new PendingConfirmation(message.recipients().getFirst(), matcher.group(1)));
+            }
+        }
+    }
+}
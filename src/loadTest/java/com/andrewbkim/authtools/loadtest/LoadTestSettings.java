@@ -0,0 +1,28 @@
+package com.andrewbkim.authtools.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Load profile, read from system properties so it can be tuned from the command line,
+ * e.g. {@code ./gradlew loadTest -PloadTest.rate=800 -PloadTest.duration=PT2M}.
+ */
+record LoadTestSettings(int rate, Duration warmup, Duration duration, Duration requestTimeout,
+                        double confirmShare, double resendShare, double maxErrorRate) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadTest.rate", 500),
+                Duration.parse(System.getProperty("loadTest.warmup", "PT10S")),
+                Duration.parse(System.getProperty("loadTest.duration", "PT30S")),
+                Duration.parse(System.getProperty("loadTest.requestTimeout", "PT10S")),
+                Double.parseDouble(System.getProperty("loadTest.confirmShare", "0.25")),
+                Double.parseDouble(System.getProperty("loadTest.resendShare", "0.15")),
+                Double.parseDouble(System.getProperty("loadTest.maxErrorRate", "0.01"))
+        );
+    }
+
+    String describe() {
+        return String.format("rate=%d req/s, warmup=%s, duration=%s, mix: confirm=%.0f%% resend=%.0f%% register=rest",
+                rate, warmup, duration, confirmShare * 100, resendShare * 100);
+    }
+}
@@ -0,0 +1,91 @@
+package com.andrewbkim.authtools.loadtest;
+
+import com.andrewbkim.authtools.support.FakeSmtpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives mixed register / confirm / resend traffic through the full stack (controller,
+ * service, JPA on H2, outbox, JavaMail) against an in-process SMTP server, then reports
+ * throughput, latency percentiles and error rates per endpoint. Runs entirely offline.
+ * <p>
+ * Run with {@code ./gradlew loadTest}; the report is printed and written to
+ * {@code build/reports/load-test/summary.txt}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DisplayName("Registration Load Test")
+class RegistrationLoadTest {
+
+    private static final FakeSmtpServer SMTP_SERVER = startSmtpServer();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void mailProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", SMTP_SERVER::getPort);
+        registry.add("spring.mail.username", () -> "");
+        registry.add("spring.mail.password", () -> "");
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.enable", () -> "false");
+        registry.add("auth-tools.mail.outbox.poll-interval", () -> "PT0.1S");
+        registry.add("auth-tools.hashing.calibrate", () -> "false");
+        registry.add("auth-tools.hashing.strength", () -> System.getProperty("loadTest.bcryptStrength", "10"));
+        // Every simulated user comes from the same address
+        registry.add("auth-tools.rate-limit.enabled", () -> "false");
+        // Keep exercising token rotation rather than the resend throttle
+        registry.add("auth-tools.token.resend-interval", () -> "PT0S");
+        registry.add("logging.level.root", () -> "WARN");
+    }
+
+    @AfterAll
+    static void stopSmtpServer() throws IOException {
+        SMTP_SERVER.close();
+    }
+
+    @Test
+    @DisplayName("Mixed registration traffic should stay within the error budget")
+    void mixedTraffic() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        List<LatencyRecorder.Summary> summaries =
+                new LoadGenerator(URI.create("http://localhost:" + port), SMTP_SERVER, settings).run();
+
+        List<String> report = new ArrayList<>();
+        report.add("Load test: " + settings.describe() + ", " + System.getProperty("loadTest.label", "default threads"));
+        report.add(LatencyRecorder.Summary.HEADER);
+        summaries.forEach(summary -> report.add(summary.format()));
+        report.forEach(System.out::println);
+
+        Path output = Path.of(System.getProperty("loadTest.reportDir", "build/reports/load-test"));
+        Files.createDirectories(output);
+        Files.write(output.resolve("summary.txt"), report);
+
+        for (LatencyRecorder.Summary summary : summaries) {
+            assertTrue(summary.errorRate() <= settings.maxErrorRate(),
+                    () -> summary.endpoint() + " error rate " + summary.errorRate() + " exceeds " + settings.maxErrorRate());
+        }
+    }
+
+    private static FakeSmtpServer startSmtpServer() {
+        try {
+            return new FakeSmtpServer();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start fake SMTP server", e);
+        }
+    }
+}
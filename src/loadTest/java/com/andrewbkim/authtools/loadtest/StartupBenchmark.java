@@ -0,0 +1,217 @@
+package com.andrewbkim.authtools.loadtest;
+
+import com.andrewbkim.authtools.support.FakeSmtpServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures cold start as a scaling node experiences it: the time from launching the JVM to
+ * the first {@code POST /register/} answered with 201, for the default build and for the
+ * fast-start build with and without its JDK AOT cache. Each run is a fresh process on an
+ * in-memory database and an in-process SMTP server.
+ * <p>
+ * Absolute times depend on the machine, so the report also gives each variant's median as a
+ * speedup over the default build measured in the same run, which is comparable across
+ * machines and CI runners. Run with {@code ./gradlew startupBenchmark [-Pstartup.runs=10]};
+ * the report is printed and written to {@code build/reports/startup/summary.txt}.
+ */
+@DisplayName("Startup Benchmark")
+class StartupBenchmark {
+
+    private static final String HEADER = String.format("%-24s %6s %10s %10s %10s %12s %9s",
+            "variant", "runs", "min ms", "median ms", "max ms", "jvm-rep. ms", "speedup");
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([0-9.]+) seconds");
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final Path appDir = Path.of(System.getProperty("startup.appDir", "build/fast-start"));
+    private final String java = System.getProperty("startup.java", "java");
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final Duration timeout = Duration.parse(System.getProperty("startup.timeout", "PT2M"));
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    /**
+     * @param name how the variant is reported
+     * @param jvmOptions options placed before {@code -jar}
+     */
+    private record Variant(String name, List<String> jvmOptions) {
+    }
+
+    /**
+     * @param firstRegistrationMillis launch to first 201 from {@code /register/}
+     * @param reportedMillis Spring Boot's own "Started ... in" figure, or -1 if it was not logged
+     */
+    private record Run(long firstRegistrationMillis, long reportedMillis) {
+    }
+
+    @Test
+    @DisplayName("Every variant should serve its first registration")
+    void timeToFirstRegistration() throws Exception {
+        Path jar = applicationJar();
+
+        List<String> fastStart = List.of("-Dspring.aot.enabled=true", "-Dspring.profiles.active=fast-start");
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant("default", List.of()));
+        variants.add(new Variant("fast-start", fastStart));
+        Path cache = appDir.resolve("app.aot");
+        if (Files.isRegularFile(cache)) {
+            variants.add(new Variant("fast-start + AOT cache",
+                    Stream.concat(Stream.of("-XX:AOTCache=" + cache.getFileName()), fastStart.stream()).toList()));
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add("Startup: time from JVM launch to the first successful POST /register/, " + runs + " runs per variant");
+        report.add(HEADER);
+        double baseline = 0;
+        try (FakeSmtpServer smtpServer = new FakeSmtpServer()) {
+            for (Variant variant : variants) {
+                List<Run> results = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    results.add(measure(variant, jar, i, smtpServer));
+                }
+                long[] millis = results.stream().mapToLong(Run::firstRegistrationMillis).sorted().toArray();
+                long[] reported = results.stream().mapToLong(Run::reportedMillis).filter(m -> m >= 0).sorted().toArray();
+                double median = median(millis);
+                if (baseline == 0) {
+                    baseline = median;
+                }
+                report.add(String.format("%-24s %6d %10d %10.0f %10d %12s %8.2fx",
+                        variant.name(), millis.length, millis[0], median, millis[millis.length - 1],
+                        reported.length == 0 ? "-" : String.format("%.0f", median(reported)), baseline / median));
+            }
+        }
+        report.add("speedup = default median / variant median, measured on this machine in this run");
+        report.forEach(System.out::println);
+
+        Path output = Path.of(System.getProperty("startup.reportDir", "build/reports/startup"));
+        Files.createDirectories(output);
+        Files.write(output.resolve("summary.txt"), report);
+    }
+
+    private Run measure(Variant variant, Path jar, int run, FakeSmtpServer smtpServer) throws Exception {
+        int port = freePort();
+        Path workDir = Files.createTempDirectory("startup-benchmark");
+        Path log = workDir.resolve("application.log");
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(variant.jvmOptions());
+        command.addAll(List.of("-jar", jar.getFileName().toString(),
+                "--server.port=" + port,
+                "--spring.mail.host=localhost",
+                "--spring.mail.port=" + smtpServer.getPort(),
+                "--spring.mail.username=",
+                "--spring.mail.password=",
+                "--spring.mail.properties.mail.smtp.auth=false",
+                "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                "--auth-tools.audit.directory=" + workDir.resolve("audit")));
+
+        // Launched from the extracted layout, as in the training run, so the AOT cache's class path matches
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(appDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long firstRegistration = awaitFirstRegistration(process, port, variant.name() + "-" + run, start);
+            return new Run(TimeUnit.NANOSECONDS.toMillis(firstRegistration - start), reportedStartup(log));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            smtpServer.drain();
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Polls until a registration succeeds. Refused connections and non-201 answers just mean
+     * the node is not ready yet.
+     * @return the {@link System#nanoTime()} at which the 201 arrived
+     */
+    private long awaitFirstRegistration(Process process, int port, String label, long start) throws Exception {
+        String email = "startup-" + label.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9-]", "") + "@example.com";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/register/"))
+                .header("Content-Type", "application/json")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + email + "\",\"password\":\"startup-benchmark-password\"}"))
+                .build();
+        long deadline = start + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(label + " exited with " + process.exitValue() + " before serving a registration");
+            }
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 201) {
+                    return System.nanoTime();
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+        throw new IllegalStateException(label + " served no registration within " + timeout);
+    }
+
+    /**
+     * @return the application jar at the top of the extracted layout, next to its lib directory
+     */
+    private Path applicationJar() throws IOException {
+        assertTrue(Files.isDirectory(appDir), () -> appDir + " is missing; run ./gradlew fastStartExtract first");
+        try (Stream<Path> files = Files.list(appDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + appDir));
+        }
+    }
+
+    private static long reportedStartup(Path log) throws IOException {
+        try (Stream<String> lines = Files.lines(log)) {
+            return lines.map(STARTED::matcher)
+                    .filter(Matcher::find)
+                    .mapToLong(matcher -> Math.round(Double.parseDouble(matcher.group(1)) * 1000))
+                    .findFirst()
+                    .orElse(-1);
+        }
+    }
+
+    private static double median(long[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
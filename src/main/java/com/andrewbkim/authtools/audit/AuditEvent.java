@@ -0,0 +1,31 @@
+package com.andrewbkim.authtools.audit;
+
+import java.time.Instant;
+
+/**
+ * One record of the audit log, as read back by {@link AuditLogReader}.
+ * <p>
+ * Tokens are never written; a confirmation carries the same {@code tokenHash} as the
+ * registration or resend that issued its token, which is how it is tied back to an email.
+ * @param sequence position in the log, gapless from zero
+ * @param time when the event happened on the request thread
+ * @param type what was attempted
+ * @param outcome whether it succeeded
+ * @param email the normalized email, or null for a confirmation
+ * @param tokenHash hex of the first 128 bits of the token's SHA-256, or null
+ * @param reason why it was rejected, or null
+ */
+public record AuditEvent(long sequence, Instant time, Type type, Outcome outcome,
+                         String email, String tokenHash, String reason) {
+
+    public enum Type {
+        REGISTER,
+        RESEND,
+        CONFIRM
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        REJECTED
+    }
+}
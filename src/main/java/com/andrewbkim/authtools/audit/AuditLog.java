@@ -0,0 +1,218 @@
+package com.andrewbkim.authtools.audit;
+
+import com.andrewbkim.authtools.config.AuditProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tamper-evident, append-only audit trail of registration and verification events.
+ * <p>
+ * Request threads only copy the event into a slot of a lock-free ring and return; they
+ * never wait for a lock or for I/O. A single writer thread drains the ring into
+ * memory-mapped segment files (see {@link AuditSegment}) and forces each drained batch to
+ * disk with one sync, so the cost of a sync is shared by every event that arrived while the
+ * previous one was running. If the writer falls so far behind that the ring fills up, events
+ * are dropped and counted in {@code auth.audit.events{result=dropped}} rather than slowing
+ * registrations down.
+ * <p>
+ * Each node writes its own directory; read it back with {@link AuditLogReader}.
+ */
+@Slf4j
+@Component
+public class AuditLog implements SmartLifecycle {
+
+    private static final int BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AuditProperties properties;
+    private final Clock clock;
+    private final AuditRingBuffer ring;
+    private final Counter published;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Timer commits;
+    private final AuditRingBuffer.Handler appender = this::append;
+
+    private AuditLogWriter writer;
+    private Thread writerThread;
+    private volatile boolean running;
+    private boolean failing;
+
+    @Autowired
+    public AuditLog(AuditProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC());
+    }
+
+    AuditLog(AuditProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.ring = properties.isEnabled() ? new AuditRingBuffer(properties.getBufferSize()) : null;
+        this.published = Counter.builder("auth.audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "published")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("auth.audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        this.failed = Counter.builder("auth.audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        this.commits = Timer.builder("auth.audit.commit")
+                .description("Time to force a batch of audit records to disk")
+                .register(meterRegistry);
+        if (ring != null) {
+            Gauge.builder("auth.audit.buffered", ring, AuditRingBuffer::size)
+                    .description("Audit events waiting for the writer")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Records an event now. Never blocks.
+     * @param email the normalized email, or null if the request did not carry one
+     * @param token the verification token involved, or null; only its hash is written
+     * @param reason why the request was rejected, or null
+     */
+    public void record(AuditEvent.Type type, AuditEvent.Outcome outcome, String email, String token, String reason) {
+        publish(clock.millis(), type, outcome, email, token, reason);
+    }
+
+    /**
+     * Records a successful event once the surrounding transaction commits, so a rolled back
+     * registration does not show up as one. Outside a transaction it is recorded at once.
+     * @param email the normalized email, or null if the request did not carry one
+     * @param token the verification token involved, or null; only its hash is written
+     */
+    public void recordAfterCommit(AuditEvent.Type type, String email, String token) {
+        long time = clock.millis();
+        if (ring == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(time, type, AuditEvent.Outcome.SUCCESS, email, token, null);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(time, type, AuditEvent.Outcome.SUCCESS, email, token, null);
+            }
+        });
+    }
+
+    private void publish(long time, AuditEvent.Type type, AuditEvent.Outcome outcome,
+                         String email, String token, String reason) {
+        if (ring == null) {
+            return;
+        }
+        if (ring.offer(time, type, outcome, email, token, reason)) {
+            published.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (ring == null) {
+            return;
+        }
+        writer = new AuditLogWriter(properties.getDirectory(), properties.getSegmentSize().toBytes(),
+                properties.getRollInterval(), clock);
+        try {
+            writer.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the audit log in " + properties.getDirectory(), e);
+        }
+        log.info("Audit log open in {} at sequence {}", properties.getDirectory(), writer.nextSequence());
+        running = true;
+        writerThread = Thread.ofPlatform().name("audit-writer").daemon().start(this::writeLoop);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server, so requests still in flight at
+     * shutdown get their events written.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void writeLoop() {
+        try {
+            while (running) {
+                if (ring.drain(appender, BATCH_SIZE) > 0) {
+                    commit();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            while (ring.drain(appender, BATCH_SIZE) > 0) {
+                commit();
+            }
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.error("Could not close the audit log cleanly", e);
+            }
+        }
+    }
+
+    private void append(AuditRingBuffer.Slot slot) {
+        try {
+            writer.append(slot.time, slot.type, slot.outcome, slot.email, slot.token, slot.reason);
+            failing = false;
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            if (!failing) {
+                // Logged once per run of failures, not once per event
+                log.error("Could not write to the audit log; events are being lost", e);
+                failing = true;
+            }
+        }
+    }
+
+    private void commit() {
+        long start = System.nanoTime();
+        try {
+            writer.commit();
+        } catch (RuntimeException e) {
+            log.error("Could not sync the audit log", e);
+        } finally {
+            commits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.andrewbkim.authtools.audit;
+
+import com.andrewbkim.authtools.util.EmailAddresses;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads an audit log directory written by {@link AuditLog}, verifying the hash chain across
+ * every segment while it looks for matching events. It only maps the files read-only, so it
+ * can run against the directory of a live node.
+ * <p>
+ * The hash of the last record is reported with every read. Recording it somewhere the node
+ * cannot write (a ticket, another system's log) makes truncating the end of the log
+ * detectable too.
+ * <pre>
+ * ./gradlew auditLog -Pdir=audit -Pemail=someone@example.com
+ * ./gradlew auditLog -Pdir=audit -Pfrom=2025-01-01T00:00:00Z -Pto=2025-02-01T00:00:00Z
+ * </pre>
+ */
+public final class AuditLogReader {
+
+    /**
+     * What to look for. Every criterion is optional.
+     * @param email events for this email, including confirmations of tokens issued to it
+     * @param from events at or after this time
+     * @param to events before this time
+     */
+    public record Query(String email, Instant from, Instant to) {
+
+        public static Query all() {
+            return new Query(null, null, null);
+        }
+    }
+
+    /**
+     * @param records intact records read
+     * @param matched records passed to the caller
+     * @param lastHash hex of the hash at the end of the chain
+     * @param problems everything that broke the chain; empty if the log is intact
+     */
+    public record Result(long records, long matched, String lastHash, List<String> problems) {
+
+        public boolean intact() {
+            return problems.isEmpty();
+        }
+    }
+
+    private AuditLogReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.err.println("Usage: AuditLogReader <directory> [--email address] [--from instant] [--to instant]");
+            System.exit(2);
+        }
+        String email = null;
+        Instant from = null;
+        Instant to = null;
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--email" -> email = value.isBlank() ? null : value;
+                case "--from" -> from = value.isBlank() ? null : Instant.parse(value);
+                case "--to" -> to = value.isBlank() ? null : Instant.parse(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        PrintStream out = System.out;
+        Result result = read(Path.of(args[0]), new Query(email, from, to), event -> out.println(format(event)));
+        System.err.printf("%,d of %,d records matched; chain ends at %s%n",
+                result.matched(), result.records(), result.lastHash());
+        if (!result.intact()) {
+            result.problems().forEach(problem -> System.err.println("BROKEN: " + problem));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads every segment in log order.
+     * @param directory the audit log directory
+     * @param query which events to pass on
+     * @param matches receives matching events in log order
+     * @return what was read and whether the chain is intact
+     * @throws IOException if the directory or a segment cannot be read
+     */
+    public static Result read(Path directory, Query query, Consumer<AuditEvent> matches) throws IOException {
+        MessageDigest digest = sha256();
+        String email = query.email() == null ? null : EmailAddresses.normalize(query.email());
+        // Confirmations carry no email; they are tied to it through the tokens issued to it
+        Set<String> issuedTokens = new HashSet<>();
+        List<String> problems = new ArrayList<>();
+        long[] counts = new long[2];
+
+        Consumer<AuditEvent> filter = event -> {
+            counts[0]++;
+            boolean forEmail = email == null || email.equals(event.email())
+                    || (event.tokenHash() != null && event.email() == null && issuedTokens.contains(event.tokenHash()));
+            if (email != null && email.equals(event.email()) && event.tokenHash() != null
+                    && event.outcome() == AuditEvent.Outcome.SUCCESS) {
+                issuedTokens.add(event.tokenHash());
+            }
+            if (forEmail
+                    && (query.from() == null || !event.time().isBefore(query.from()))
+                    && (query.to() == null || event.time().isBefore(query.to()))) {
+                counts[1]++;
+                matches.accept(event);
+            }
+        };
+
+        byte[] lastHash = AuditSegment.GENESIS_HASH;
+        long nextSequence = 0;
+        for (Path file : AuditSegment.list(directory)) {
+            try (AuditSegment segment = AuditSegment.open(file)) {
+                if (segment.firstSequence() != nextSequence) {
+                    problems.add(file.getFileName() + " starts at sequence " + segment.firstSequence()
+                            + " but the log continues at " + nextSequence);
+                } else if (!Arrays.equals(segment.previousHash(), lastHash)) {
+                    problems.add(file.getFileName() + " does not chain onto the record before it");
+                }
+                AuditSegment.Scan scan = segment.scan(digest, filter);
+                if (scan.problem() != null) {
+                    problems.add(file.getFileName() + ": " + scan.problem());
+                }
+                lastHash = scan.lastHash();
+                nextSequence = scan.nextSequence();
+            }
+        }
+        for (Path file : AuditSegment.listDamaged(directory)) {
+            problems.add(file.getFileName() + " was set aside by the writer as damaged");
+        }
+        return new Result(counts[0], counts[1], HexFormat.of().formatHex(lastHash), problems);
+    }
+
+    /**
+     * @return the event as one tab-separated line, with "-" for missing values
+     */
+    public static String format(AuditEvent event) {
+        return event.sequence() + "\t" + event.time() + "\t" + event.type() + "\t" + event.outcome()
+                + "\t" + orDash(event.email()) + "\t" + orDash(event.tokenHash()) + "\t" + orDash(event.reason());
+    }
+
+    private static String orDash(String value) {
+        return value == null ? "-" : value;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.andrewbkim.authtools.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Appends records to the segments of one audit log directory. Used by a single thread.
+ * <p>
+ * On open the directory is locked against other writers and the chain is picked up from
+ * the last record of the newest segment; a new segment is always started, so a segment
+ * that was left damaged by a crash (or by tampering) is kept as evidence rather than
+ * appended to or trimmed. Records are only durable once {@link #commit()} returns.
+ */
+@Slf4j
+final class AuditLogWriter implements AutoCloseable {
+
+    private static final String LOCK_FILE = "audit.lock";
+    private static final int TOKEN_HASH_BYTES = 16;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final long rollIntervalMillis;
+    private final Clock clock;
+    private final MessageDigest chainDigest = sha256();
+    private final MessageDigest tokenDigest = sha256();
+    private final ByteBuffer body = ByteBuffer.allocate(AuditSegment.MAX_BODY_BYTES);
+    private final HexFormat hex = HexFormat.of();
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private AuditSegment current;
+    private long nextSequence;
+    private byte[] lastHash = new byte[AuditSegment.HASH_BYTES];
+    private byte[] hash = new byte[AuditSegment.HASH_BYTES];
+    private boolean dirty;
+
+    AuditLogWriter(Path directory, long segmentSize, Duration rollInterval, Clock clock) {
+        if (segmentSize < AuditSegment.HEADER_BYTES + AuditSegment.MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Audit segment size must be at least "
+                    + (AuditSegment.HEADER_BYTES + AuditSegment.MAX_RECORD_BYTES) + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.rollIntervalMillis = rollInterval.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Locks the directory, recovers the end of the chain and starts a new segment.
+     * @throws IOException if the directory is in use by another writer or cannot be written
+     */
+    void open() throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Audit log directory " + directory + " is in use by another writer");
+        }
+        recover();
+        roll();
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments = AuditSegment.list(directory);
+        if (segments.isEmpty()) {
+            return;
+        }
+        Path newest = segments.getLast();
+        AuditSegment.Scan scan;
+        long size;
+        try (AuditSegment segment = AuditSegment.open(newest)) {
+            scan = segment.scan(chainDigest, event -> { });
+            size = segment.byteSize();
+        }
+        nextSequence = scan.nextSequence();
+        lastHash = scan.lastHash();
+        if (scan.problem() != null) {
+            log.error("Audit segment {} is damaged ({}); continuing the chain from its last intact record",
+                    newest, scan.problem());
+            if (scan.records() == 0) {
+                // Nothing intact to keep it in sequence, and the next segment needs its name
+                Files.move(newest, newest.resolveSibling(newest.getFileName() + AuditSegment.DAMAGED_SUFFIX));
+            }
+        } else if (scan.records() == 0) {
+            // Left behind by a crash before its first record; the next segment takes its name
+            Files.delete(newest);
+        } else if (size > scan.end()) {
+            // The writer stopped without trimming the pre-allocated tail
+            try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+                channel.truncate(scan.end());
+            }
+        }
+    }
+
+    /**
+     * Appends one event, rolling to a new segment first if the current one is full or old.
+     */
+    void append(long time, AuditEvent.Type type, AuditEvent.Outcome outcome,
+                String email, String token, String reason) throws IOException {
+        String tokenHash = token == null ? null : tokenHash(token);
+        AuditSegment.encode(body, nextSequence, time, type, outcome, email, tokenHash, reason);
+        chainDigest.update(lastHash);
+        chainDigest.update(body.duplicate());
+        try {
+            chainDigest.digest(hash, 0, AuditSegment.HASH_BYTES);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (current == null || clock.millis() - current.createdAt() >= rollIntervalMillis) {
+            roll();
+        }
+        if (!current.append(body, hash)) {
+            roll();
+            current.append(body, hash);
+        }
+        byte[] previous = lastHash;
+        lastHash = hash;
+        hash = previous;
+        nextSequence++;
+        dirty = true;
+    }
+
+    /**
+     * Forces everything appended since the last commit to the storage device, so one sync
+     * covers a whole batch of events.
+     */
+    void commit() {
+        if (dirty) {
+            current.force();
+            dirty = false;
+        }
+    }
+
+    long nextSequence() {
+        return nextSequence;
+    }
+
+    private void roll() throws IOException {
+        if (current != null) {
+            AuditSegment previous = current;
+            current = null;
+            closeSegment(previous);
+        }
+        current = AuditSegment.create(directory, segmentSize, nextSequence, clock.millis(), lastHash);
+    }
+
+    private void closeSegment(AuditSegment segment) throws IOException {
+        if (dirty) {
+            segment.force();
+            dirty = false;
+        }
+        segment.close();
+        if (segment.records() == 0) {
+            Files.delete(segment.file());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (current != null) {
+                closeSegment(current);
+                current = null;
+            }
+        } finally {
+            if (lock != null) {
+                lock.release();
+                lockChannel.close();
+                lock = null;
+            }
+        }
+    }
+
+    private String tokenHash(String token) {
+        byte[] digest = tokenDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return hex.formatHex(digest, 0, TOKEN_HASH_BYTES);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.andrewbkim.authtools.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of pre-allocated event slots.
+ * <p>
+ * Each slot has a sequence number that says whose turn it is: a producer may fill the slot
+ * when its sequence equals the producer's claimed position, and the consumer may read it
+ * once the producer has bumped it by one. Producers claim positions with a single CAS and
+ * never wait on each other or on the consumer; if the ring is full they give up at once.
+ * Nothing is allocated per event.
+ */
+class AuditRingBuffer {
+
+    /** A pre-allocated event; only the producer that claimed it or the consumer touches it. */
+    static final class Slot {
+        long time;
+        AuditEvent.Type type;
+        AuditEvent.Outcome outcome;
+        String email;
+        String token;
+        String reason;
+    }
+
+    /** Handles one event while the consumer holds its slot. */
+    @FunctionalInterface
+    interface Handler {
+        void on(Slot slot);
+    }
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(1, requestedCapacity - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Publishes an event without blocking. Safe to call from any thread.
+     * @return false if the ring was full and the event was not published
+     */
+    boolean offer(long time, AuditEvent.Type type, AuditEvent.Outcome outcome,
+                  String email, String token, String reason) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Slot slot = slots[index];
+                    slot.time = time;
+                    slot.type = type;
+                    slot.outcome = outcome;
+                    slot.email = email;
+                    slot.token = token;
+                    slot.reason = reason;
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // The consumer has not freed this slot since the last lap
+                return false;
+            }
+            // Another producer claimed this position first; try the next one
+        }
+    }
+
+    /**
+     * Hands published events to the handler in order. Must only be called from the consumer
+     * thread. Stops at the first slot that is still being filled.
+     * @param handler called once per event; the slot is reused as soon as it returns
+     * @param limit the most events to hand over
+     * @return the number of events handed over
+     */
+    int drain(Handler handler, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            long position = head;
+            int index = (int) position & mask;
+            if (sequences.getAcquire(index) != position + 1) {
+                break;
+            }
+            Slot slot = slots[index];
+            try {
+                handler.on(slot);
+            } finally {
+                slot.email = null;
+                slot.token = null;
+                slot.reason = null;
+                sequences.setRelease(index, position + slots.length);
+                head = position + 1;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return roughly how many events are waiting; exact only when producers are idle
+     */
+    long size() {
+        return Math.max(0, tail.get() - head);
+    }
+}
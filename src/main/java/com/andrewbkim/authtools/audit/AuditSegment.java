@@ -0,0 +1,343 @@
+package com.andrewbkim.authtools.audit;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * One memory-mapped file of the audit log. Segments are named after the sequence of their
+ * first record, so listing them by name lists them in log order.
+ * <p>
+ * File layout, all big-endian:
+ * <pre>
+ * header   int magic, int version, long first sequence, long created at (epoch millis),
+ *          32 bytes SHA-256 of the record before this segment (zeros for the first), padding to 64
+ * records  int body length, body, 32 bytes SHA-256(previous hash || body), padding to 8
+ * body     long sequence, long time (epoch millis), byte type, byte outcome,
+ *          then email, token hash and reason, each a short UTF-8 length (-1 for null) and the bytes
+ * </pre>
+ * A writer pre-allocates the file, fills the body and hash of a record before publishing
+ * its length, and trims the unused tail when it closes the segment, so a zero length marks
+ * the end of the log. Because every hash covers the one before it, changing, removing or
+ * reordering any record breaks the chain from there on.
+ */
+final class AuditSegment implements AutoCloseable {
+
+    static final int MAGIC = 0x4155444C; // "AUDL"
+    static final int VERSION = 1;
+    static final long HEADER_BYTES = 64;
+    static final int HASH_BYTES = 32;
+    static final byte[] GENESIS_HASH = new byte[HASH_BYTES];
+    static final String DAMAGED_SUFFIX = ".damaged";
+
+    /** Longer strings are cut, which keeps every record well inside a segment. */
+    static final int MAX_STRING_CHARS = 512;
+    static final int MIN_BODY_BYTES = 2 * Long.BYTES + 2 + 3 * Short.BYTES;
+    static final int MAX_BODY_BYTES = 2 * Long.BYTES + 2 + 3 * (Short.BYTES + 3 * MAX_STRING_CHARS);
+    static final long MAX_RECORD_BYTES = recordBytes(MAX_BODY_BYTES);
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LENGTH = ValueLayout.JAVA_INT.withOrder(ByteOrder.BIG_ENDIAN).varHandle();
+    private static final AuditEvent.Type[] TYPES = AuditEvent.Type.values();
+    private static final AuditEvent.Outcome[] OUTCOMES = AuditEvent.Outcome.values();
+
+    /**
+     * The outcome of reading a segment from the start.
+     * @param records intact records read
+     * @param nextSequence the sequence the next record should have
+     * @param lastHash the hash of the last intact record, or the header's previous hash
+     * @param end the offset just after the last intact record
+     * @param problem why reading stopped before the end marker, or null if it did not
+     */
+    record Scan(long records, long nextSequence, byte[] lastHash, long end, String problem) {
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final boolean writable;
+    private final long firstSequence;
+    private final long createdAt;
+    private final byte[] previousHash;
+    private long end = HEADER_BYTES;
+    private long records;
+
+    private AuditSegment(Path file, FileChannel channel, Arena arena, MemorySegment segment, boolean writable) {
+        this.file = file;
+        this.channel = channel;
+        this.arena = arena;
+        this.segment = segment;
+        this.writable = writable;
+        this.firstSequence = segment.get(LONG, 8);
+        this.createdAt = segment.get(LONG, 16);
+        this.previousHash = new byte[HASH_BYTES];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, 24, previousHash, 0, HASH_BYTES);
+    }
+
+    static String fileName(long firstSequence) {
+        return String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX);
+    }
+
+    /**
+     * @return the segment files in the directory, in log order
+     */
+    static List<Path> list(Path directory) throws IOException {
+        return list(directory, SUFFIX);
+    }
+
+    /**
+     * @return segments a writer found damaged before their first record and set aside
+     */
+    static List<Path> listDamaged(Path directory) throws IOException {
+        return list(directory, SUFFIX + DAMAGED_SUFFIX);
+    }
+
+    private static List<Path> list(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Creates and maps a new, empty segment.
+     * @param size the size to pre-allocate; the file is trimmed to its records on close
+     * @param previousHash the hash of the last record of the previous segment
+     */
+    static AuditSegment create(Path directory, long size, long firstSequence, long createdAt,
+                               byte[] previousHash) throws IOException {
+        Path file = directory.resolve(fileName(firstSequence));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            segment.set(INT, 0, MAGIC);
+            segment.set(INT, 4, VERSION);
+            segment.set(LONG, 8, firstSequence);
+            segment.set(LONG, 16, createdAt);
+            MemorySegment.copy(previousHash, 0, segment, ValueLayout.JAVA_BYTE, 24, HASH_BYTES);
+            return new AuditSegment(file, channel, arena, segment, true);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing segment read-only.
+     * @throws IOException if the file cannot be read or is not an audit segment
+     */
+    static AuditSegment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (segment.byteSize() < HEADER_BYTES
+                    || segment.get(INT, 0) != MAGIC || segment.get(INT, 4) != VERSION) {
+                throw new IOException(file + " is not an audit log segment");
+            }
+            return new AuditSegment(file, channel, arena, segment, false);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    byte[] previousHash() {
+        return previousHash.clone();
+    }
+
+    long byteSize() {
+        return segment.byteSize();
+    }
+
+    long records() {
+        return records;
+    }
+
+    /**
+     * Reads the records from the start, checking the hash chain and the sequence numbers,
+     * and stops at the end marker or at the first record that does not check out.
+     * @param digest a SHA-256 digest to use
+     * @param visitor receives every intact record in order
+     */
+    Scan scan(MessageDigest digest, Consumer<AuditEvent> visitor) {
+        byte[] hash = previousHash.clone();
+        byte[] stored = new byte[HASH_BYTES];
+        long sequence = firstSequence;
+        long offset = HEADER_BYTES;
+        long count = 0;
+        String problem = null;
+        while (offset + Integer.BYTES <= segment.byteSize()) {
+            int length = (int) LENGTH.getAcquire(segment, offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < MIN_BODY_BYTES || length > MAX_BODY_BYTES
+                    || offset + recordBytes(length) > segment.byteSize()) {
+                problem = "invalid record length " + length + " at offset " + offset;
+                break;
+            }
+            ByteBuffer body = segment.asSlice(offset + Integer.BYTES, length).asByteBuffer();
+            digest.update(hash);
+            digest.update(body.duplicate());
+            byte[] computed = digest.digest();
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset + Integer.BYTES + length, stored, 0, HASH_BYTES);
+            if (!MessageDigest.isEqual(computed, stored)) {
+                problem = "hash mismatch at offset " + offset;
+                break;
+            }
+            AuditEvent event;
+            try {
+                event = decode(body);
+            } catch (RuntimeException e) {
+                problem = "unreadable record at offset " + offset;
+                break;
+            }
+            if (event.sequence() != sequence) {
+                problem = "expected sequence " + sequence + " but found " + event.sequence() + " at offset " + offset;
+                break;
+            }
+            visitor.accept(event);
+            hash = computed;
+            sequence++;
+            count++;
+            offset += recordBytes(length);
+        }
+        return new Scan(count, sequence, hash, offset, problem);
+    }
+
+    /**
+     * Appends a record. The body and hash are written before the length that makes the
+     * record visible, so a reader never sees half a record.
+     * @param body the encoded body, from position to limit; left unchanged
+     * @param hash the record's chained hash
+     * @return false if the record does not fit; the segment is unchanged
+     */
+    boolean append(ByteBuffer body, byte[] hash) {
+        int length = body.remaining();
+        long size = recordBytes(length);
+        if (end + size > segment.byteSize()) {
+            return false;
+        }
+        MemorySegment.copy(MemorySegment.ofBuffer(body), 0, segment, end + Integer.BYTES, length);
+        MemorySegment.copy(hash, 0, segment, ValueLayout.JAVA_BYTE, end + Integer.BYTES + length, HASH_BYTES);
+        LENGTH.setRelease(segment, end, length);
+        end += size;
+        records++;
+        return true;
+    }
+
+    /**
+     * Flushes appended records to the storage device.
+     */
+    void force() {
+        segment.force();
+    }
+
+    /**
+     * Unmaps the segment. A writable segment is first trimmed to its records.
+     */
+    @Override
+    public void close() throws IOException {
+        arena.close();
+        try (channel) {
+            if (writable) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Encodes a record body into the buffer, which is cleared first and flipped after.
+     */
+    static void encode(ByteBuffer out, long sequence, long time, AuditEvent.Type type, AuditEvent.Outcome outcome,
+                       String email, String tokenHash, String reason) {
+        out.clear();
+        out.putLong(sequence);
+        out.putLong(time);
+        out.put((byte) type.ordinal());
+        out.put((byte) outcome.ordinal());
+        putString(out, email);
+        putString(out, tokenHash);
+        putString(out, reason);
+        out.flip();
+    }
+
+    static AuditEvent decode(ByteBuffer body) {
+        long sequence = body.getLong();
+        long time = body.getLong();
+        AuditEvent.Type type = TYPES[body.get()];
+        AuditEvent.Outcome outcome = OUTCOMES[body.get()];
+        String email = getString(body);
+        String tokenHash = getString(body);
+        String reason = getString(body);
+        return new AuditEvent(sequence, Instant.ofEpochMilli(time), type, outcome, email, tokenHash, reason);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        if (value.length() > MAX_STRING_CHARS) {
+            value = value.substring(0, MAX_STRING_CHARS);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long recordBytes(int bodyLength) {
+        long size = Integer.BYTES + bodyLength + HASH_BYTES;
+        return (size + 7) & ~7L;
+    }
+}
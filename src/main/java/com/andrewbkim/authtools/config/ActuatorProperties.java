@@ -0,0 +1,27 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for access to the actuator endpoints, which are secured apart from the application.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.actuator")
+public class ActuatorProperties {
+
+    private final Scraper scraper = new Scraper();
+
+    @Getter
+    @Setter
+    public static class Scraper {
+
+        /** HTTP Basic user that Prometheus (or another collector) reads the metrics endpoints as; no such user if unset. */
+        private String username;
+
+        /** Its password, stored with an encoding prefix, e.g. {bcrypt}$2a$10$... ({noop} for plain text). */
+        private String password;
+    }
+}
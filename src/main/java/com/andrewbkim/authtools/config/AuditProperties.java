@@ -0,0 +1,33 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the append-only audit log of registration and verification events.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.audit")
+public class AuditProperties {
+
+    /** Whether events are recorded at all. */
+    private boolean enabled = true;
+
+    /** Directory holding the segment files; one writer per directory, so one per node. */
+    private Path directory = Path.of("audit");
+
+    /** Events buffered between the request threads and the writer; rounded up to a power of two. Events are dropped, and counted, when it is full. */
+    private int bufferSize = 65536;
+
+    /** Size a segment is pre-allocated and mapped at; it is rolled when the next record does not fit. */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /** Age at which a segment is rolled even if it is not full. */
+    private Duration rollInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,25 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.security.BreachedPasswordIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Maps the breached-password index at startup when one is configured.
+ */
+@Slf4j
+@Configuration
+public class BreachedPasswordConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "auth-tools.breached-passwords", name = "index-file")
+    public BreachedPasswordIndex breachedPasswordIndex(BreachedPasswordProperties properties) throws IOException {
+        BreachedPasswordIndex index = BreachedPasswordIndex.open(properties.getIndexFile());
+        log.info("Mapped {} breached password hashes from {}", index.size(), properties.getIndexFile());
+        return index;
+    }
+}
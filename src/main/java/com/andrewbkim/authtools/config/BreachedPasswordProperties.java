@@ -0,0 +1,19 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Location of the offline breached-password index.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.breached-passwords")
+public class BreachedPasswordProperties {
+
+    /** Index built by BreachedPasswordIndexBuilder; registration skips the check when unset. */
+    private Path indexFile;
+}
@@ -0,0 +1,31 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Identity of this instance when several share one database.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.cluster")
+public class ClusterProperties {
+
+    /** Name recorded as the owner of job leases; defaults to the host name plus a random suffix. */
+    private String nodeId = defaultNodeId();
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
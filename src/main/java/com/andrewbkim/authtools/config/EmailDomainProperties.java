@@ -0,0 +1,26 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Domain lists applied to the email address of registrations and resends.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.email-domains")
+public class EmailDomainProperties {
+
+    /** Domains (and their subdomains) that are refused; one per line. */
+    private Path blocklistFile;
+
+    /** Domains accepted even when the blocklist covers them, e.g. a legitimate subdomain. */
+    private Path allowlistFile;
+
+    /** How often the files are checked for changes. */
+    private Duration reloadInterval = Duration.ofMinutes(1);
+}
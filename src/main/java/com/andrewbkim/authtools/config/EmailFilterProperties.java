@@ -0,0 +1,34 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the in-memory Bloom filter over registered emails.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.email-filter")
+public class EmailFilterProperties {
+
+    private boolean enabled = true;
+
+    /** Emails the filter is sized for up front; it is sized for at least 1.25x the existing users. */
+    private long expectedEmails = 1_000_000;
+
+    /** Target rate of "maybe registered" answers for emails that are not registered. */
+    private double falsePositiveRate = 0.01;
+
+    /** Off-heap memory the filter may grow to; past it, the false-positive rate rises instead. */
+    private DataSize maxMemory = DataSize.ofMegabytes(64);
+
+    /** How often registrations made on other nodes are added. */
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    /** How far back each refresh looks beyond the previous one, covering slow commits and clock skew. */
+    private Duration refreshOverlap = Duration.ofMinutes(1);
+}
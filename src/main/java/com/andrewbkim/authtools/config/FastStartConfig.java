@@ -0,0 +1,39 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.service.UserImportService;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.List;
+
+/**
+ * The {@code fast-start} profile, for instances launched on demand during registration spikes.
+ * Beans that the first registration does not need are created on first use instead of at
+ * startup; everything on the request path and every background job stays eager, so the
+ * first request does not pay for initialization that was merely postponed.
+ * <p>
+ * In an AOT-processed build (see {@code ./gradlew fastStart}) this runs at build time and
+ * the lazy flags are compiled into the generated bean definitions.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("fast-start")
+public class FastStartConfig {
+
+    /** Mail is first needed when the outbox delivers; the import service only by the import runner. */
+    private static final List<Class<?>> DEFERRED_TYPES = List.of(JavaMailSender.class, UserImportService.class);
+
+    @Bean
+    static BeanFactoryPostProcessor deferNonCriticalBeans() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                Class<?> type = beanFactory.getType(name, false);
+                if (type != null && DEFERRED_TYPES.stream().anyMatch(deferred -> deferred.isAssignableFrom(type))) {
+                    beanFactory.getBeanDefinition(name).setLazyInit(true);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.controller.IdempotencyFilter;
+import com.andrewbkim.authtools.repository.IdempotencyRecordRepository;
+import com.andrewbkim.authtools.service.DatabaseIdempotencyStore;
+import com.andrewbkim.authtools.service.IdempotencyStore;
+import com.andrewbkim.authtools.service.InMemoryIdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Puts the {@link IdempotencyFilter} in front of the registration POSTs, backed by the
+ * in-memory or the database store.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth-tools.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "auth-tools.idempotency", name = "store", havingValue = "memory", matchIfMissing = true)
+    public InMemoryIdempotencyStore inMemoryIdempotencyStore(IdempotencyProperties properties) {
+        return new InMemoryIdempotencyStore(properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "auth-tools.idempotency", name = "store", havingValue = "database")
+    public DatabaseIdempotencyStore databaseIdempotencyStore(IdempotencyRecordRepository repository,
+                                                             TransactionTemplate transactionTemplate,
+                                                             IdempotencyProperties properties) {
+        return new DatabaseIdempotencyStore(repository, transactionTemplate, properties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore store,
+                                                                       IdempotencyProperties properties,
+                                                                       ObjectMapper objectMapper,
+                                                                       MeterRegistry meterRegistry) {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(store, properties, objectMapper, meterRegistry));
+        registration.addUrlPatterns("/register/", "/register/resend-token");
+        return registration;
+    }
+}
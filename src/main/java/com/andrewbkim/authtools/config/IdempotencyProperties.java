@@ -0,0 +1,45 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Replay of registration responses to client retries that carry an {@code Idempotency-Key}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.idempotency")
+public class IdempotencyProperties {
+
+    public enum Store {
+        /** Per-node cache; retries that reach another node run again. */
+        MEMORY,
+        /** The idempotency_record table, shared by every node. */
+        DATABASE
+    }
+
+    private boolean enabled = true;
+
+    private Store store = Store.MEMORY;
+
+    /** How long a response is replayed for. */
+    private Duration ttl = Duration.ofHours(24);
+
+    /** Responses kept by the in-memory store. */
+    private long maxEntries = 100_000;
+
+    /** How long a retry waits for the original request to finish before getting a 409. */
+    private Duration waitTimeout = Duration.ofSeconds(10);
+
+    /** How long a request may hold its key while running; covers a node dying mid-request. */
+    private Duration pendingTimeout = Duration.ofMinutes(1);
+
+    /** Longest accepted key. */
+    private int maxKeyLength = 255;
+
+    /** How often expired rows are deleted from the database store. */
+    private Duration purgeInterval = Duration.ofMinutes(10);
+}
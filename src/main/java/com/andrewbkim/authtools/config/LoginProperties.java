@@ -0,0 +1,73 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for form login against app_user.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.login")
+public class LoginProperties {
+
+    private final Cache cache = new Cache();
+
+    private final Throttle throttle = new Throttle();
+
+    @Getter
+    @Setter
+    public static class Cache {
+
+        /** Maximum number of cached accounts. */
+        private long maxSize = 10_000;
+
+        /** How long a cached account is trusted before it is reloaded from the database. */
+        private Duration ttl = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Throttle {
+
+        private boolean enabled = true;
+
+        /** Upper bound on accounts and on clients tracked; least recently used are dropped first. */
+        private long maxKeys = 100_000;
+
+        /** Failure counts halve after each half-life without a new failure. */
+        private Duration decayHalfLife = Duration.ofMinutes(15);
+
+        /** Lockout of a single account, whichever client the guesses come from. */
+        private Policy account = new Policy(5, Duration.ofSeconds(30), Duration.ofMinutes(15));
+
+        /** Lockout of a single client address, whichever accounts it guesses at. */
+        private Policy client = new Policy(50, Duration.ofMinutes(1), Duration.ofHours(1));
+    }
+
+    @Getter
+    @Setter
+    public static class Policy {
+
+        /** Failures (after decay) at which the key is first locked. */
+        private int threshold;
+
+        /** Lockout at the threshold; it doubles with every further failure. */
+        private Duration initialLockout;
+
+        /** Ceiling for the doubling lockout. */
+        private Duration maxLockout;
+
+        public Policy() {
+        }
+
+        public Policy(int threshold, Duration initialLockout, Duration maxLockout) {
+            this.threshold = threshold;
+            this.initialLockout = initialLockout;
+            this.maxLockout = maxLockout;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for the verification mail outbox dispatcher.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.mail.outbox")
+public class MailOutboxProperties {
+
+    /** Maximum number of messages drained per dispatcher run. */
+    private int batchSize = 50;
+
+    /** Messages of a batch sent in parallel; 1 sends them one after another. */
+    private int concurrency = 1;
+
+    /** Number of delivery attempts before a message is dead-lettered. */
+    private int maxAttempts = 8;
+
+    /** Delay before the first retry; doubled after every further failure. */
+    private Duration initialBackoff = Duration.ofSeconds(5);
+
+    /** Upper bound for the retry delay. */
+    private Duration maxBackoff = Duration.ofMinutes(15);
+
+    /** How long a claimed batch is reserved for one node; unsent messages become due again after this. */
+    private Duration claimTimeout = Duration.ofMinutes(5);
+}
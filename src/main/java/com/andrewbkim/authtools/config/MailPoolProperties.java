@@ -0,0 +1,31 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection pooling for outgoing SMTP, on top of the standard {@code spring.mail.*} settings.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.mail.pool")
+public class MailPoolProperties {
+
+    /** Keep authenticated connections open and reuse them; false falls back to one connection per send. */
+    private boolean enabled = true;
+
+    /** Connections open to the relay at most, which also caps concurrent sends. */
+    private int maxConnections = 4;
+
+    /** How long a sender waits for a free connection before the send fails. */
+    private Duration borrowTimeout = Duration.ofSeconds(30);
+
+    /** Idle connections older than this are closed rather than reused; keep below the relay's idle timeout. */
+    private Duration maxIdle = Duration.ofSeconds(30);
+
+    /** Messages sent over one connection before it is replaced, for relays that limit this. */
+    private int maxMessagesPerConnection = 100;
+}
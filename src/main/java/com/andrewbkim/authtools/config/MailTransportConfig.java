@@ -0,0 +1,43 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.service.PooledSmtpMailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+/**
+ * Replaces Boot's one-connection-per-send {@code JavaMailSender} with {@link PooledSmtpMailSender},
+ * configured from the same {@code spring.mail.*} properties.
+ */
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+@ConditionalOnProperty(prefix = "auth-tools.mail.pool", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MailTransportConfig {
+
+    @Bean
+    public PooledSmtpMailSender mailSender(MailProperties mail, MailPoolProperties pool, MeterRegistry meterRegistry) {
+        PooledSmtpMailSender sender = new PooledSmtpMailSender(pool.getMaxConnections(), pool.getBorrowTimeout(),
+                pool.getMaxIdle(), pool.getMaxMessagesPerConnection(), meterRegistry);
+        sender.setHost(mail.getHost());
+        if (mail.getPort() != null) {
+            sender.setPort(mail.getPort());
+        }
+        sender.setUsername(mail.getUsername());
+        sender.setPassword(mail.getPassword());
+        sender.setProtocol(mail.getProtocol());
+        if (mail.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mail.getDefaultEncoding().name());
+        }
+        if (!mail.getProperties().isEmpty()) {
+            Properties javaMailProperties = new Properties();
+            javaMailProperties.putAll(mail.getProperties());
+            sender.setJavaMailProperties(javaMailProperties);
+        }
+        return sender;
+    }
+}
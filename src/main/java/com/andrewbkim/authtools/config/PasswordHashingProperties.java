@@ -0,0 +1,41 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the dedicated password hashing pool.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.hashing")
+public class PasswordHashingProperties {
+
+    /** Number of hashing threads; 0 means one per available core. */
+    private int poolSize = 0;
+
+    /** Number of hash requests allowed to wait for a thread before new ones are rejected. */
+    private int queueCapacity = 64;
+
+    /** Retry-After advertised to clients when the queue is full. */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /** Pick the BCrypt cost at startup from {@link #targetLatency} instead of using {@link #strength}. */
+    private boolean calibrate = true;
+
+    /** Desired time for a single hash on this hardware when calibrating. */
+    private Duration targetLatency = Duration.ofMillis(250);
+
+    /** BCrypt cost used when calibration is off, and the floor when it is on. */
+    private int strength = 10;
+
+    /** Ceiling for the calibrated BCrypt cost. */
+    private int maxStrength = 16;
+
+    public int effectivePoolSize() {
+        return poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,26 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.controller.RateLimitInterceptor;
+import com.andrewbkim.authtools.security.RegistrationRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Puts the per-client rate limit in front of the endpoints that hash passwords or send mail.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth-tools.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RegistrationRateLimiter rateLimiter;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter))
+                .addPathPatterns("/register/", "/register/resend-token");
+    }
+}
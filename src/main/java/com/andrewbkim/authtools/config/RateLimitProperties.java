@@ -0,0 +1,45 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Allowances for registration and token resend requests.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Upper bound on keys tracked per limiter; least recently used keys are dropped first. */
+    private long maxKeys = 100_000;
+
+    /** Allowance per client IP, shared by both endpoints. */
+    private Limit client = new Limit(20, Duration.ofMinutes(1));
+
+    /** Allowance per normalized email address, shared by both endpoints. */
+    private Limit email = new Limit(5, Duration.ofMinutes(15));
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        /** Requests allowed in one burst; the allowance refills evenly over the period. */
+        private int permits;
+
+        private Duration period;
+
+        public Limit() {
+        }
+
+        public Limit(int permits, Duration period) {
+            this.permits = permits;
+            this.period = period;
+        }
+    }
+}
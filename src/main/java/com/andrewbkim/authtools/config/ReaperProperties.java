@@ -0,0 +1,31 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retention and pacing for the expired token / abandoned account reaper.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.reaper")
+public class ReaperProperties {
+
+    /** How long an expired token is kept, so late clicks still get "expired" instead of "invalid". */
+    private Duration tokenRetention = Duration.ofHours(24);
+
+    /** How long an account may stay unverified before it is deleted. */
+    private Duration unverifiedUserRetention = Duration.ofDays(7);
+
+    /** Rows deleted per statement (and per transaction). */
+    private int chunkSize = 500;
+
+    /** Wall-clock budget per run; remaining rows are left for the next run. */
+    private Duration timeBudget = Duration.ofSeconds(5);
+
+    /** Lease that keeps other nodes from reaping at the same time; renewed after every chunk. */
+    private Duration leaseDuration = Duration.ofMinutes(1);
+}
@@ -0,0 +1,12 @@
+package com.andrewbkim.authtools.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the background jobs (outbox dispatch and friends).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
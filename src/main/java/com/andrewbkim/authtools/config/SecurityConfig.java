@@ -1,30 +1,134 @@
 package com.andrewbkim.authtools.config;
 
+import com.andrewbkim.authtools.security.AppUserDetailsService;
+import com.andrewbkim.authtools.security.BCryptCostCalibrator;
+import com.andrewbkim.authtools.security.BoundedPasswordEncoder;
+import com.andrewbkim.authtools.security.CaffeineUserCache;
+import com.andrewbkim.authtools.security.LoginFailureTracker;
+import com.andrewbkim.authtools.security.ThrottledAuthenticationProvider;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.springframework.security.config.Customizer.withDefaults;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    /** Held only by the configured metrics scraper; admins may read metrics too. */
+    private static final String METRICS_ROLE = "METRICS";
+    private static final String ADMIN_ROLE = "ADMIN";
+
+    @Bean
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        int strength = properties.isCalibrate()
+                ? BCryptCostCalibrator.calibrate(properties.getTargetLatency(), properties.getStrength(), properties.getMaxStrength())
+                : properties.getStrength();
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(strength),
+                properties.effectivePoolSize(),
+                properties.getQueueCapacity(),
+                properties.getRetryAfter(),
+                meterRegistry
+        );
+    }
+
+    @Bean
+    public UserCache userCache(LoginProperties properties) {
+        return new CaffeineUserCache(properties.getCache().getMaxSize(), properties.getCache().getTtl());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "auth-tools.login.throttle", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public LoginFailureTracker loginFailureTracker(LoginProperties properties, MeterRegistry meterRegistry) {
+        return new LoginFailureTracker(properties.getThrottle(), meterRegistry, Ticker.systemTicker());
+    }
+
+    /**
+     * Form login against app_user. Cached accounts skip the query, hashes below the current
+     * BCrypt cost are transparently re-hashed after a successful login, and locked-out
+     * accounts or clients are refused before any password is compared.
+     */
+    @Bean
+    public DaoAuthenticationProvider daoAuthenticationProvider(AppUserDetailsService userDetailsService,
+                                                               PasswordEncoder passwordEncoder,
+                                                               UserCache userCache,
+                                                               ObjectProvider<LoginFailureTracker> failureTracker) {
+        LoginFailureTracker tracker = failureTracker.getIfAvailable();
+        DaoAuthenticationProvider provider = tracker != null
+                ? new ThrottledAuthenticationProvider(userDetailsService, tracker)
+                : new DaoAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserCache(userCache);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        return provider;
+    }
+
+    /**
+     * Actuator endpoints, apart from the application: stateless HTTP Basic, so a scraper
+     * gets a 401 rather than a redirect to the login form. Health is open, lockouts are for
+     * admins, and the metrics endpoints are for admins and the configured scraper account.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Order(1)
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http,
+                                                           ActuatorProperties properties,
+                                                           DaoAuthenticationProvider daoAuthenticationProvider) throws Exception {
+        List<AuthenticationProvider> providers = new ArrayList<>();
+        ActuatorProperties.Scraper scraper = properties.getScraper();
+        if (scraper.getUsername() != null && !scraper.getUsername().isBlank()) {
+            DaoAuthenticationProvider scraperProvider = new DaoAuthenticationProvider(new InMemoryUserDetailsManager(
+                    User.withUsername(scraper.getUsername())
+                            .password(scraper.getPassword())
+                            .roles(METRICS_ROLE)
+                            .build()));
+            scraperProvider.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+            providers.add(scraperProvider);
+        }
+        providers.add(daoAuthenticationProvider);
+
+        http.securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .requestMatchers(EndpointRequest.to("lockouts")).hasRole(ADMIN_ROLE)
+                        .anyRequest().hasAnyRole(METRICS_ROLE, ADMIN_ROLE)
+                )
+                .httpBasic(withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authenticationManager(new ProviderManager(providers));
+        return http.build();
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable) // Disable for simplicity in this demo
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/register", "register/confirm").permitAll()
+                        .requestMatchers("/register/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .formLogin(withDefaults());// Use default login
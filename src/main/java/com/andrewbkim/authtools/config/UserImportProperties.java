@@ -0,0 +1,39 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for the bulk user import. Setting {@code file} runs the import at startup and
+ * exits once it is done.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.import")
+public class UserImportProperties {
+
+    /** NDJSON (.ndjson, .jsonl) or CSV (.csv, with a header row) file to import. */
+    private Path file;
+
+    /** Rejected rows, one CSV line each; defaults to the input file name plus ".errors.csv". */
+    private Path reportFile;
+
+    /** Last committed line, for resuming; defaults to the input file name plus ".checkpoint". */
+    private Path checkpointFile;
+
+    /** Rows hashed, inserted and committed together. */
+    private int batchSize = 500;
+
+    /** Threads hashing plain-text passwords; 0 means one per available processor. */
+    private int hashingThreads = 0;
+
+    /** Whether unverified accounts get a verification email queued. */
+    private boolean sendVerification = false;
+
+    public int effectiveHashingThreads() {
+        return hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,29 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.security.HmacKeyRing;
+import com.andrewbkim.authtools.security.SignedTokenCodec;
+import com.andrewbkim.authtools.security.StripedSecureRandomTokenGenerator;
+import com.andrewbkim.authtools.security.TokenGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the random token source and, when signed verification tokens are enabled, the
+ * signing key ring.
+ */
+@Configuration
+public class VerificationTokenConfig {
+
+    @Bean
+    public TokenGenerator tokenGenerator(VerificationTokenProperties properties) {
+        return new StripedSecureRandomTokenGenerator(properties.getBits(), properties.effectiveGeneratorStripes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "auth-tools.token.mode", havingValue = "signed")
+    public SignedTokenCodec signedTokenCodec(VerificationTokenProperties properties, TokenGenerator tokenGenerator) {
+        VerificationTokenProperties.Signing signing = properties.getSigning();
+        return new SignedTokenCodec(new HmacKeyRing(signing.getActiveKey(), signing.getKeys()), tokenGenerator);
+    }
+}
@@ -0,0 +1,56 @@
+package com.andrewbkim.authtools.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Selects how verification tokens are issued and checked.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "auth-tools.token")
+public class VerificationTokenProperties {
+
+    public enum Mode {
+        /** Random tokens stored in the verification_token table. */
+        STORED,
+        /** Self-contained HMAC-signed tokens; confirmation needs no token lookup. */
+        SIGNED
+    }
+
+    private Mode mode = Mode.STORED;
+
+    /** Size of random tokens, 128 or 256 bits. Stored tokens are kept as raw bytes. */
+    private int bits = 256;
+
+    /** Independent random generators to spread concurrent callers over; 0 means two per core. */
+    private int generatorStripes = 0;
+
+    /** Minimum time between two verification emails to the same address. */
+    private Duration resendInterval = Duration.ofMinutes(1);
+
+    private final Signing signing = new Signing();
+
+    public int effectiveGeneratorStripes() {
+        return generatorStripes > 0 ? generatorStripes : Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    @Getter
+    @Setter
+    public static class Signing {
+
+        /** Id of the key used to sign new tokens. */
+        private String activeKey;
+
+        /**
+         * Base64 encoded HMAC keys by id. Keep retired keys here until the tokens signed
+         * with them have expired.
+         */
+        private Map<String, String> keys = new LinkedHashMap<>();
+    }
+}
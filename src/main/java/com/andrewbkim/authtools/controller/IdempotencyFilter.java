@@ -0,0 +1,269 @@
+package com.andrewbkim.authtools.controller;
+
+import com.andrewbkim.authtools.config.IdempotencyProperties;
+import com.andrewbkim.authtools.service.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Honours the {@code Idempotency-Key} header on the registration POSTs. The first request
+ * with a key runs normally and its response is stored; retries with the same key get that
+ * response replayed, without reaching the controller, the rate limiter or the database.
+ * A retry arriving while the first request is still running waits for it. Reusing a key for
+ * a different request body is refused with 422, and a 5xx or 429 is not stored, so the retry
+ * runs again.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final long POLL_MILLIS = 25;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final IdempotencyStore store;
+    private final IdempotencyProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter mismatched;
+    private final Counter timedOut;
+
+    public IdempotencyFilter(IdempotencyStore store, IdempotencyProperties properties, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry) {
+        this.store = store;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.executed = outcome(meterRegistry, "executed");
+        this.replayed = outcome(meterRegistry, "replayed");
+        this.mismatched = outcome(meterRegistry, "mismatched");
+        this.timedOut = outcome(meterRegistry, "timed_out");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY).strip();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > properties.getMaxKeyLength()) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1 to " + properties.getMaxKeyLength() + " characters");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, HttpStatus.CONTENT_TOO_LARGE, "Request body is too large");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+        // Scoped per endpoint, so one key used on two endpoints is two keys
+        String key = request.getRequestURI() + " " + idempotencyKey;
+        String fingerprint = fingerprint(request, cachedRequest.body);
+
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+        while (true) {
+            if (store.reserve(key, fingerprint)) {
+                execute(key, cachedRequest, response, chain);
+                return;
+            }
+
+            Optional<IdempotencyStore.Entry> entry = store.find(key);
+            if (entry.isPresent() && !entry.get().fingerprint().equals(fingerprint)) {
+                mismatched.increment();
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different request");
+                return;
+            }
+            if (entry.isPresent() && !entry.get().isPending()) {
+                replayed.increment();
+                replay(response, entry.get().response());
+                return;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                timedOut.increment();
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+                return;
+            }
+            awaitOriginal(key, remaining);
+        }
+    }
+
+    private void execute(String key, CachedBodyRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        inFlight.put(key, done);
+        executed.increment();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                store.complete(key, new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+                        wrapper.getContentAsByteArray()));
+                stored = true;
+            }
+        } finally {
+            try {
+                if (!stored) {
+                    store.release(key);
+                }
+            } finally {
+                inFlight.remove(key, done);
+                done.complete(null);
+                wrapper.copyBodyToResponse();
+            }
+        }
+    }
+
+    /**
+     * Waits for the request holding the key: on its future when it runs on this node,
+     * otherwise by polling the store.
+     */
+    private void awaitOriginal(String key, long remainingNanos) throws IOException {
+        CompletableFuture<Void> original = inFlight.get(key);
+        try {
+            if (original != null) {
+                original.get(remainingNanos, TimeUnit.NANOSECONDS);
+            } else {
+                Thread.sleep(Math.min(POLL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1));
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // Checked again by the caller
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the original request", e);
+        }
+    }
+
+    private static void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("auth.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the body up front, so it can be fingerprinted and still be read by the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is already in memory, so it is available at once
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.andrewbkim.authtools.controller;
+
+import com.andrewbkim.authtools.security.RegistrationRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies the per-client allowance before the request body is even read. The client is
+ * identified by its remote address; behind a proxy, set {@code server.forward-headers-strategy}
+ * so that this is the real client rather than the proxy.
+ */
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RegistrationRateLimiter rateLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        rateLimiter.checkClient(request.getRemoteAddr());
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.andrewbkim.authtools.controller;
+
+import com.andrewbkim.authtools.dto.RegistrationRequest;
+import com.andrewbkim.authtools.dto.ResendTokenRequest;
+import com.andrewbkim.authtools.security.RegistrationRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Applies the per-email allowance as soon as the request body is parsed, before it reaches
+ * the controller (and before any password is hashed or mail queued).
+ */
+@ControllerAdvice(assignableTypes = RegistrationController.class)
+@ConditionalOnProperty(prefix = "auth-tools.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RateLimitRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+    private final RegistrationRateLimiter rateLimiter;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == RegistrationRequest.class || targetType == ResendTokenRequest.class;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        String email = switch (body) {
+            case RegistrationRequest request -> request.getEmail();
+            case ResendTokenRequest request -> request.getEmail();
+            default -> null;
+        };
+        // Blank addresses are left for validation to reject
+        if (email != null && !email.isBlank()) {
+            rateLimiter.checkEmail(email);
+        }
+        return body;
+    }
+}
@@ -1,5 +1,6 @@
 package com.andrewbkim.authtools.controller;
 
+import com.andrewbkim.authtools.service.ResendCoordinator;
 import com.andrewbkim.authtools.service.UserService;
 import com.andrewbkim.authtools.dto.RegistrationRequest;
 import com.andrewbkim.authtools.dto.ResendTokenRequest;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 public class RegistrationController {
 
     private final UserService userService;
+    private final ResendCoordinator resendCoordinator;
 
     @PostMapping("/")
     public ResponseEntity<ApiResponse> register(@Valid @RequestBody RegistrationRequest request) {
@@ -34,7 +36,7 @@ public class RegistrationController {
 
     @PostMapping("/resend-token")
     public ResponseEntity<ApiResponse> resendToken(@Valid @RequestBody ResendTokenRequest request) {
-        userService.resendVerificationToken(request.getEmail());
+        resendCoordinator.resend(request.getEmail());
         return ResponseEntity.ok(new ApiResponse("A new verification email has been sent"));
     }
 }
@@ -1,5 +1,7 @@
 package com.andrewbkim.authtools.dto;
 
+import com.andrewbkim.authtools.security.AllowedEmailDomain;
+import com.andrewbkim.authtools.security.NotBreached;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -16,9 +18,11 @@ public class RegistrationRequest {
 
     @NotBlank(message = "Email cannot be blank")
     @Email(message = "Email should be a valid email address")
+    @AllowedEmailDomain
     private String email;
 
     @NotBlank(message = "Password cannot be blank")
     @Size(min = 8, message = "Password be at least 8 characters long")
+    @NotBreached
     private String password;
 }
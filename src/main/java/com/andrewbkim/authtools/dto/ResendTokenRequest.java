@@ -1,5 +1,6 @@
 package com.andrewbkim.authtools.dto;
 
+import com.andrewbkim.authtools.security.AllowedEmailDomain;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
@@ -13,5 +14,6 @@ import lombok.Setter;
 public class ResendTokenRequest {
     @NotBlank(message = "Email cannot be blank")
     @Email(message = "Email should be a valid email address")
+    @AllowedEmailDomain
     private String email;
 }
@@ -0,0 +1,24 @@
+package com.andrewbkim.authtools.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One account in a bulk import file. Exactly one of {@code password} (plain text, hashed on
+ * import) and {@code passwordHash} (an existing BCrypt hash, stored as is) must be set.
+ */
+@Getter
+@Setter
+public class UserImportRow {
+
+    private String email;
+
+    private String password;
+
+    @JsonAlias("password_hash")
+    private String passwordHash;
+
+    /** Whether the legacy system had already verified the address. */
+    private boolean enabled;
+}
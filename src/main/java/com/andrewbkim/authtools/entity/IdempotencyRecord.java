@@ -0,0 +1,39 @@
+package com.andrewbkim.authtools.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A used idempotency key and, once its request has finished, the response to replay.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_record")
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 320)
+    private String key;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    private Integer status;
+
+    private String contentType;
+
+    @Column(length = 4000)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.andrewbkim.authtools.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Which node may run a cluster-wide job, and until when. A lease that is not renewed
+ * lapses, and any node may then take it over.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "job_lease")
+public class JobLease {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(length = 128)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -12,21 +12,24 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 public class VerificationToken {
-    private static final int EXPIRATION_MINUTES = 15;
+    public static final int EXPIRATION_MINUTES = 15;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "verification_token_seq")
+    @SequenceGenerator(name = "verification_token_seq", sequenceName = "verification_token_seq", allocationSize = 50)
     private Long id;
 
-    private String token;
+    @Column(nullable = false, unique = true, length = 32)
+    private byte[] token;
 
+    @Column(nullable = false)
     private LocalDateTime expiryDate;
 
     @OneToOne(fetch = FetchType.EAGER)
     @JoinColumn(nullable = false, name = "user_id")
     private User user;
 
-    public VerificationToken(String token, User user) {
+    public VerificationToken(byte[] token, User user) {
         this.token = token;
         this.user = user;
         this.expiryDate = calculateExpiryDate();
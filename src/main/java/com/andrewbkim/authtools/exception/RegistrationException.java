@@ -7,14 +7,29 @@ import org.springframework.http.HttpStatus;
 /**
  * Custom exception for handling registration-specific business logic errors.
  * This allows us to map them to specific HTTP status codes.
+ * <p>
+ * These are expected outcomes rather than bugs, and under attack most requests end in one,
+ * so no stack trace is captured. That also makes instances immutable, and the common
+ * rejections are shared constants.
  */
 @Getter
 public class RegistrationException extends RuntimeException {
 
+    public static final RegistrationException EMAIL_IN_USE =
+            new RegistrationException("Email already in use", HttpStatus.CONFLICT);
+    public static final RegistrationException USER_NOT_FOUND =
+            new RegistrationException("User not found with this email", HttpStatus.NOT_FOUND);
+    public static final RegistrationException ALREADY_VERIFIED =
+            new RegistrationException("Account is already verified", HttpStatus.BAD_REQUEST);
+    public static final RegistrationException INVALID_TOKEN =
+            new RegistrationException("Invalid verification token", HttpStatus.BAD_REQUEST);
+    public static final RegistrationException TOKEN_EXPIRED =
+            new RegistrationException("Verification token has expired", HttpStatus.BAD_REQUEST);
+
     private final HttpStatus status;
 
     public RegistrationException(String message, HttpStatus status) {
-        super(message);
+        super(message, null, false, false);
         this.status = status;
     }
 }
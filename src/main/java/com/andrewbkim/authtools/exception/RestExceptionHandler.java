@@ -1,27 +1,57 @@
 package com.andrewbkim.authtools.exception;
 
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Global exception handler to catch and format exceptions into a consistent
  * JSON response for the entire application
+ * <p>
+ * Error bodies are written straight to bytes rather than built as maps for Jackson to
+ * serialize later. Business rejections have a fixed set of messages, so their whole
+ * response is built once per status and message and reused.
  */
 
 @RestControllerAdvice
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private static final int MAX_CACHED_RESPONSES = 256;
+
+    private final AuthMetrics metrics;
+    private final JsonFactory jsonFactory;
+    private final Map<RejectionKey, ResponseEntity<Object>> rejections = new ConcurrentHashMap<>();
+    private final byte[] unexpectedErrorBody;
+
+    private record RejectionKey(HttpStatusCode status, String message) {
+    }
+
+    public RestExceptionHandler(AuthMetrics metrics, ObjectMapper objectMapper) {
+        this.metrics = metrics;
+        this.jsonFactory = objectMapper.getFactory();
+        this.unexpectedErrorBody = errorBody("An unexpected error occurred. Please try again later.");
+    }
+
     /**
      * Handles validation errors from @Valid annotation.
      *
@@ -35,14 +65,23 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
 
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getAllErrors().forEach((error) -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
+        List<ObjectError> errors = ex.getBindingResult().getAllErrors();
+        ByteArrayBuilder body = new ByteArrayBuilder(128);
+        try (JsonGenerator json = jsonFactory.createGenerator(body)) {
+            json.writeStartObject();
+            for (int i = 0; i < errors.size(); i++) {
+                String field = fieldName(errors.get(i));
+                if (!hasLaterError(errors, i, field)) {
+                    // One message per field, the last one reported
+                    json.writeStringField(field, errors.get(i).getDefaultMessage());
+                }
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(body.toByteArray());
     }
 
     /**
@@ -53,9 +92,32 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(RegistrationException.class)
     public ResponseEntity<Object> handleRegistrationException(RegistrationException ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", ex.getMessage());
-        return new ResponseEntity<>(error, ex.getStatus());
+        metrics.rejection(ex.getStatus());
+        RejectionKey key = new RejectionKey(ex.getStatus(), ex.getMessage());
+        ResponseEntity<Object> response = rejections.get(key);
+        if (response == null) {
+            response = ResponseEntity.status(ex.getStatus())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(errorBody(ex.getMessage()));
+            if (rejections.size() < MAX_CACHED_RESPONSES) {
+                rejections.putIfAbsent(key, response);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Handles load-shedding rejections, telling the client when to try again
+     *
+     * @param ex the exception
+     * @return a ResponseEntity object with a structured error message and a Retry-After header
+     */
+    @ExceptionHandler(RetryLaterException.class)
+    public ResponseEntity<Object> handleRetryLaterException(RetryLaterException ex) {
+        return ResponseEntity.status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorBody(ex.getMessage()));
     }
 
     /**
@@ -66,10 +128,38 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAllExceptions(Exception ex) {
-        Map<String, String> error = new HashMap<>();
-        error.put("error", "An unexpected error occurred. Please try again later.");
         // Log the exception here for debugging
          logger.error("Unexpected error", ex);
-        return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(unexpectedErrorBody);
+    }
+
+    /**
+     * Renders {@code {"error": message}}.
+     */
+    private byte[] errorBody(String message) {
+        ByteArrayBuilder body = new ByteArrayBuilder(64);
+        try (JsonGenerator json = jsonFactory.createGenerator(body)) {
+            json.writeStartObject();
+            json.writeStringField("error", message);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toByteArray();
+    }
+
+    private static String fieldName(ObjectError error) {
+        return error instanceof FieldError fieldError ? fieldError.getField() : error.getObjectName();
+    }
+
+    private static boolean hasLaterError(List<ObjectError> errors, int index, String field) {
+        for (int i = index + 1; i < errors.size(); i++) {
+            if (fieldName(errors.get(i)).equals(field)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
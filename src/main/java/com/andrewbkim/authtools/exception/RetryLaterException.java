@@ -0,0 +1,24 @@
+package com.andrewbkim.authtools.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is refused because the server is shedding load. The handler turns
+ * it into the given status with a {@code Retry-After} header. Like {@link RegistrationException}
+ * it carries no stack trace.
+ */
+@Getter
+public class RetryLaterException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public RetryLaterException(String message, HttpStatus status, Duration retryAfter) {
+        super(message, null, false, false);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+}
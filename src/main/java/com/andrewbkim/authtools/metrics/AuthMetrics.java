@@ -0,0 +1,75 @@
+package com.andrewbkim.authtools.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-registered meters for the registration and verification flow. Timers are looked up
+ * once at startup and fed raw {@link System#nanoTime()} deltas, so recording a phase on
+ * the request path allocates nothing.
+ */
+@Component
+public class AuthMetrics {
+
+    public enum Phase {
+        EMAIL_LOOKUP,
+        PASSWORD_HASH,
+        USER_SAVE,
+        TOKEN_SAVE,
+        MAIL_ENQUEUE,
+        MAIL_SEND,
+        TOKEN_CONFIRM
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+    private final Map<Integer, Counter> rejectionCounters = new ConcurrentHashMap<>();
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("auth.phase")
+                    .description("Time spent in each phase of registration, verification and mail delivery")
+                    .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} against the given phase.
+     * @param phase the phase that just finished
+     * @param startNanos the {@link System#nanoTime()} taken when the phase started
+     */
+    public void record(Phase phase, long startNanos) {
+        phaseTimers.get(phase).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a business rejection returned to the client.
+     * @param status the HTTP status of the rejection
+     */
+    public void rejection(HttpStatusCode status) {
+        Counter counter = rejectionCounters.get(status.value());
+        if (counter == null) {
+            counter = rejectionCounters.computeIfAbsent(status.value(), code -> Counter.builder("auth.rejections")
+                    .description("Registration requests rejected with a business error, by HTTP status")
+                    .tag("status", String.valueOf(code))
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+
+    public MeterRegistry registry() {
+        return meterRegistry;
+    }
+}
@@ -0,0 +1,52 @@
+package com.andrewbkim.authtools.repository;
+
+import com.andrewbkim.authtools.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    /**
+     * Inserts a pending record for a key. Fails on the primary key if the key is already in use.
+     */
+    @Modifying
+    @Query(value = "insert into idempotency_record (idempotency_key, fingerprint, expires_at) "
+            + "values (:key, :fingerprint, :expiresAt)", nativeQuery = true)
+    int reserve(@Param("key") String key, @Param("fingerprint") String fingerprint,
+                @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Records the response of a pending key and extends it to the replay TTL.
+     * @return 1 if the key was pending, 0 otherwise
+     */
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = :status, r.contentType = :contentType, r.body = :body, "
+            + "r.expiresAt = :expiresAt where r.key = :key and r.status is null")
+    int complete(@Param("key") String key, @Param("status") Integer status, @Param("contentType") String contentType,
+                 @Param("body") String body, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Deletes a key that is still pending.
+     */
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.key = :key and r.status is null")
+    int deletePending(@Param("key") String key);
+
+    /**
+     * Deletes the record for a key if it has expired, so the key can be reserved again.
+     */
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.key = :key and r.expiresAt < :now")
+    int deleteIfExpired(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    /**
+     * Bulk-deletes every expired record.
+     * @return the number of records deleted
+     */
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,42 @@
+package com.andrewbkim.authtools.repository;
+
+import com.andrewbkim.authtools.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+    /**
+     * Takes a lease that has lapsed, or extends one the caller already holds.
+     * @param name the job name
+     * @param owner the node taking the lease
+     * @param now the current time
+     * @param leaseUntil when the lease lapses unless renewed
+     * @return 1 if the caller now holds the lease, 0 if another node does (or the job is unknown)
+     */
+    @Modifying
+    @Query("update JobLease l set l.owner = :owner, l.leaseUntil = :leaseUntil "
+            + "where l.name = :name and (l.leaseUntil < :now or l.owner = :owner)")
+    int acquire(@Param("name") String name, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Creates the lease row for a job that has none yet, held by the caller.
+     * A concurrent insert by another node fails on the primary key.
+     */
+    @Modifying
+    @Query(value = "insert into job_lease (name, owner, lease_until) values (:name, :owner, :leaseUntil)",
+            nativeQuery = true)
+    int create(@Param("name") String name, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Gives up a lease early so another node need not wait for it to lapse.
+     * @return 1 if the caller held the lease, 0 otherwise
+     */
+    @Modifying
+    @Query("update JobLease l set l.leaseUntil = :now where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,47 @@
+package com.andrewbkim.authtools.repository;
+
+import com.andrewbkim.authtools.entity.MailOutboxMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+    /**
+     * Finds the ids of messages in the given status whose next delivery attempt is due, oldest first.
+     * @param status the status to match, normally PENDING
+     * @param now the current time
+     * @param limit the maximum number of ids to return
+     * @return the due message ids
+     */
+    @Query("select m.id from MailOutboxMessage m where m.status = :status and m.nextAttemptAt <= :now order by m.id")
+    List<Long> findDueIds(@Param("status") MailOutboxMessage.Status status,
+                          @Param("now") LocalDateTime now,
+                          Limit limit);
+
+    /**
+     * Claims those of the given messages that are still due, so no other node sends them until
+     * {@code leaseUntil}. Rows another node claimed in the meantime no longer match and are skipped.
+     * @param ids the candidate message ids
+     * @param status the status to match, normally PENDING
+     * @param now the current time
+     * @param claimToken a token unique to this claim
+     * @param leaseUntil when unsent claimed messages become due again
+     * @return the number of messages claimed
+     */
+    @Modifying
+    @Query("update MailOutboxMessage m set m.claimToken = :claimToken, m.nextAttemptAt = :leaseUntil "
+            + "where m.id in :ids and m.status = :status and m.nextAttemptAt <= :now")
+    int claim(@Param("ids") Collection<Long> ids, @Param("status") MailOutboxMessage.Status status,
+              @Param("now") LocalDateTime now, @Param("claimToken") String claimToken,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<MailOutboxMessage> findByClaimTokenOrderById(String claimToken);
+
+    long countByStatus(MailOutboxMessage.Status status);
+}
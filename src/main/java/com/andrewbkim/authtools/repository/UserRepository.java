@@ -1,10 +1,99 @@
 package com.andrewbkim.authtools.repository;
 
 import com.andrewbkim.authtools.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    boolean existsByEmail(String email);
+
+    /**
+     * Streams every registered email. Must be consumed inside a transaction and closed.
+     * @return all emails, in no particular order
+     */
+    @Query("select u.email from User u")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllEmails();
+
+    /**
+     * Finds the emails of users created at or after the given instant.
+     * @param since the earliest creation time
+     * @return the matching emails
+     */
+    @Query("select u.email from User u where u.createdAt >= :since")
+    List<String> findEmailsCreatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Finds which of the given emails are already registered, in one query.
+     * @param emails normalized emails
+     * @return the subset that exists
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Enables a user in a single conditional update, without loading the entity.
+     * @param id the user id
+     * @return 1 if the user was enabled, 0 if it does not exist or was already enabled
+     */
+    @Modifying
+    @Query("update User u set u.enabled = true where u.id = :id and u.enabled = false")
+    int enableIfDisabled(@Param("id") Long id);
+
+    /**
+     * Enables the user a verification token belongs to, in one statement: the token must exist
+     * and not have expired, and the user must not be enabled yet.
+     * @param token the raw token bytes
+     * @param now the current time; the token must expire at or after it
+     * @return 1 if the user was enabled, 0 if the token is unknown or expired or the user was already enabled
+     */
+    @Modifying
+    @Query("update User u set u.enabled = true where u.enabled = false and u.id = "
+            + "(select t.user.id from VerificationToken t where t.token = :token and t.expiryDate >= :now)")
+    int enableByToken(@Param("token") byte[] token, @Param("now") LocalDateTime now);
+
+    /**
+     * Replaces a user's password hash without loading the entity.
+     * @param email the normalized email
+     * @param password the new hash
+     * @return the number of users updated
+     */
+    @Modifying
+    @Query("update User u set u.password = :password where u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
+
+    /**
+     * Finds the next chunk of unverified users created before the cutoff, in id order.
+     * @param cutoff only users created before this instant are returned
+     * @param afterId keyset position; only ids greater than this are returned
+     * @param limit the chunk size
+     * @return the matching user ids, ascending
+     */
+    @Query("select u.id from User u where u.enabled = false and u.createdAt < :cutoff and u.id > :afterId order by u.id")
+    List<Long> findUnverifiedIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff,
+                                              @Param("afterId") Long afterId,
+                                              Limit limit);
+
+    /**
+     * Bulk-deletes the given users, skipping any that were verified in the meantime.
+     * @param ids the user ids
+     * @return the number of users deleted
+     */
+    @Modifying
+    @Query("delete from User u where u.id in :ids and u.enabled = false")
+    int deleteUnverifiedByIdIn(@Param("ids") Collection<Long> ids);
 }
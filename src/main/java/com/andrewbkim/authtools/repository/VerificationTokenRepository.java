@@ -2,17 +2,24 @@ package com.andrewbkim.authtools.repository;
 
 import com.andrewbkim.authtools.entity.VerificationToken;
 import com.andrewbkim.authtools.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long> {
     /**
-     * Finds a verification token by its token string.
-     * @param token the unique token string
+     * Finds a verification token by its raw token bytes.
+     * @param token the unique token bytes
      * @return an Optional containing the token if found
      */
-    Optional<VerificationToken> findByToken(String token);
+    Optional<VerificationToken> findByToken(byte[] token);
 
     /**
      * Finds a verification token associated with a specific user.
@@ -21,4 +28,54 @@ public interface VerificationTokenRepository extends JpaRepository<VerificationT
      * @return an Optional containing the token if found
      */
     Optional<VerificationToken> findByUser(User user);
+
+    /**
+     * Looks up only the expiry of a token, without loading the token or its user.
+     * @param token the raw token bytes
+     * @return the expiry, if the token exists
+     */
+    @Query("select t.expiryDate from VerificationToken t where t.token = :token")
+    Optional<LocalDateTime> findExpiryByToken(@Param("token") byte[] token);
+
+    /**
+     * Replaces a user's token in place, provided the current one was issued long enough ago.
+     * @param userId the user id
+     * @param token the new token bytes
+     * @param expiryDate the new expiry
+     * @param latestExpiry only a token expiring at or before this (i.e. issued early enough) is replaced
+     * @return 1 if the token was rotated, 0 if the user has no token or it is too recent
+     */
+    @Modifying
+    @Query("update VerificationToken t set t.token = :token, t.expiryDate = :expiryDate "
+            + "where t.user.id = :userId and t.expiryDate <= :latestExpiry")
+    int rotate(@Param("userId") Long userId, @Param("token") byte[] token,
+               @Param("expiryDate") LocalDateTime expiryDate, @Param("latestExpiry") LocalDateTime latestExpiry);
+
+    /**
+     * Finds the next chunk of tokens that expired before the cutoff, in id order.
+     * @param cutoff only tokens expiring before this instant are returned
+     * @param afterId keyset position; only ids greater than this are returned
+     * @param limit the chunk size
+     * @return the matching token ids, ascending
+     */
+    @Query("select t.id from VerificationToken t where t.expiryDate < :cutoff and t.id > :afterId order by t.id")
+    List<Long> findExpiredIds(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Bulk-deletes tokens by id without loading them.
+     * @param ids the token ids
+     * @return the number of tokens deleted
+     */
+    @Modifying
+    @Query("delete from VerificationToken t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Bulk-deletes the tokens belonging to the given users.
+     * @param userIds the user ids
+     * @return the number of tokens deleted
+     */
+    @Modifying
+    @Query("delete from VerificationToken t where t.user.id in :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
 }
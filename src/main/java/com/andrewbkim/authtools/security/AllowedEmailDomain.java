@@ -0,0 +1,26 @@
+package com.andrewbkim.authtools.security;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated email address must not belong to a blocklisted domain.
+ */
+@Documented
+@Constraint(validatedBy = AllowedEmailDomainValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AllowedEmailDomain {
+
+    String message() default "Email addresses from this domain are not accepted";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
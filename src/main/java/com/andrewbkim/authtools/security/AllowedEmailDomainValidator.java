@@ -0,0 +1,19 @@
+package com.andrewbkim.authtools.security;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Checks {@link AllowedEmailDomain} addresses against the current domain lists.
+ */
+@RequiredArgsConstructor
+public class AllowedEmailDomainValidator implements ConstraintValidator<AllowedEmailDomain, String> {
+
+    private final EmailDomainFilter domainFilter;
+
+    @Override
+    public boolean isValid(String email, ConstraintValidatorContext context) {
+        return email == null || domainFilter.isAllowed(email);
+    }
+}
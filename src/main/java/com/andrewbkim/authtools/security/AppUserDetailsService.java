@@ -0,0 +1,46 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.util.EmailAddresses;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads login accounts from app_user, keyed by normalized email, with the role stored on
+ * the account as their only authority. Also receives re-hashed passwords from Spring
+ * Security when a stored hash uses a lower BCrypt cost than the current encoder.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        return userRepository.findByEmail(EmailAddresses.normalize(username))
+                .map(user -> User.withUsername(user.getEmail())
+                        .password(user.getPassword())
+                        .disabled(!user.isEnabled())
+                        .roles(user.getRole().name())
+                        .build())
+                .orElseThrow(() -> new UsernameNotFoundException("No account for " + username));
+    }
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        // The provider cached the details with the old hash just before calling us
+        userCache.removeUserFromCache(user.getUsername());
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.andrewbkim.authtools.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Measures BCrypt on the current hardware and picks the highest cost whose hash time stays
+ * within a target latency.
+ */
+@Slf4j
+public final class BCryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+    private static final int SAMPLES = 3;
+
+    private BCryptCostCalibrator() {
+    }
+
+    /**
+     * @param target     the desired time for one hash
+     * @param minStrength the lowest cost to return, even if it is slower than the target
+     * @param maxStrength the highest cost to try
+     * @return the calibrated BCrypt cost
+     */
+    public static int calibrate(Duration target, int minStrength, int maxStrength) {
+        long targetNanos = target.toNanos();
+        int chosen = minStrength;
+        long chosenNanos = measure(minStrength);
+
+        // Each extra cost unit doubles the work, so predict before paying for a measurement
+        for (int strength = minStrength + 1; strength <= maxStrength && chosenNanos * 2 <= targetNanos; strength++) {
+            long nanos = measure(strength);
+            if (nanos > targetNanos) {
+                break;
+            }
+            chosen = strength;
+            chosenNanos = nanos;
+        }
+
+        log.info("Calibrated BCrypt cost {} ({} ms per hash, target {} ms)",
+                chosen, Duration.ofNanos(chosenNanos).toMillis(), target.toMillis());
+        return chosen;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode(SAMPLE_PASSWORD); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
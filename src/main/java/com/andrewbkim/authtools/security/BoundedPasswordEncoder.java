@@ -0,0 +1,119 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * A {@link PasswordEncoder} that runs the (deliberately slow) delegate on a fixed pool of
+ * hashing threads instead of the calling thread. The pool's queue is bounded, so a burst
+ * of registrations or logins can only occupy {@code poolSize} cores; anything beyond the
+ * queue is rejected with a 503 rather than piling up.
+ * <p>
+ * The hashing threads are always platform threads. When requests run on virtual threads,
+ * the caller parks (and releases its carrier) while it waits, so CPU-bound BCrypt work
+ * never occupies the carrier pool that every other virtual thread depends on.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity,
+                                  Duration retryAfter, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.retryAfter = retryAfter;
+        ThreadFactory threadFactory = Thread.ofPlatform()
+                .name("password-hashing-", 1)
+                .daemon(true)
+                .factory();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("auth.hashing.latency")
+                .description("Time spent hashing on the hashing pool, excluding queue wait")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.hashing.latency")
+                .description("Time spent hashing on the hashing pool, excluding queue wait")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.hashing.rejected")
+                .description("Hash requests refused because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Hash requests waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads currently busy")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only parses the hash prefix, no need to hop threads
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * The encoder that does the actual hashing, for batch jobs that bring their own threads
+     * rather than competing with requests for the bounded pool.
+     * @return the wrapped encoder
+     */
+    public PasswordEncoder delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new RetryLaterException("Server is busy, please try again shortly",
+                    HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
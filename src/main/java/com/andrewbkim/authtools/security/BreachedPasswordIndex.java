@@ -0,0 +1,143 @@
+package com.andrewbkim.authtools.security;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Read-only lookup of SHA-1 password hashes in an index file built by
+ * {@link BreachedPasswordIndexBuilder}. The file is memory-mapped, not read, so the heap
+ * stays flat however large the corpus is and the OS page cache holds the hot buckets.
+ * <p>
+ * File layout, all big-endian:
+ * <pre>
+ * header   int magic, int version, long entry count
+ * fanout   65537 longs; bucket p (the first two hash bytes) spans entries [fanout[p], fanout[p + 1])
+ * entries  one long per hash: hash bytes 2..9, sorted unsigned within each bucket
+ * </pre>
+ * Keeping 80 of SHA-1's 160 bits means a false match needs an 80-bit collision, which is
+ * negligible even at a billion entries, and it lets a lookup be a binary search over longs
+ * inside one bucket.
+ */
+public class BreachedPasswordIndex implements AutoCloseable {
+
+    static final int MAGIC = 0x42504958; // "BPIX"
+    static final int VERSION = 1;
+    static final int BUCKETS = 1 << 16;
+    static final long HEADER_BYTES = 16;
+    static final long FANOUT_BYTES = (BUCKETS + 1) * Long.BYTES;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final long entryCount;
+
+    private BreachedPasswordIndex(Arena arena, MemorySegment segment, long entryCount) {
+        this.arena = arena;
+        this.segment = segment;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Maps an index file.
+     * @param file the index produced by {@link BreachedPasswordIndexBuilder}
+     * @return the mapped index; close it to unmap
+     * @throws IOException if the file cannot be read or is not a valid index
+     */
+    public static BreachedPasswordIndex open(Path file) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (segment.byteSize() < HEADER_BYTES + FANOUT_BYTES
+                    || segment.get(INT, 0) != MAGIC || segment.get(INT, 4) != VERSION) {
+                throw new IOException(file + " is not a breached password index");
+            }
+            long entryCount = segment.get(LONG, 8);
+            if (segment.byteSize() != HEADER_BYTES + FANOUT_BYTES + entryCount * Long.BYTES) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+            return new BreachedPasswordIndex(arena, segment, entryCount);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param password the candidate password
+     * @return true if its SHA-1 appears in the corpus
+     */
+    public boolean contains(CharSequence password) {
+        return containsHash(sha1(password));
+    }
+
+    /**
+     * @param sha1 a raw 20-byte SHA-1 hash
+     * @return true if the hash appears in the corpus
+     */
+    public boolean containsHash(byte[] sha1) {
+        int bucket = prefix(sha1);
+        long key = key(sha1);
+        long low = fanout(bucket);
+        long high = fanout(bucket + 1) - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int comparison = Long.compareUnsigned(entry(mid), key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long size() {
+        return entryCount;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    static int prefix(byte[] sha1) {
+        return ((sha1[0] & 0xFF) << 8) | (sha1[1] & 0xFF);
+    }
+
+    static long key(byte[] sha1) {
+        long key = 0;
+        for (int i = 2; i < 10; i++) {
+            key = (key << 8) | (sha1[i] & 0xFF);
+        }
+        return key;
+    }
+
+    static byte[] sha1(CharSequence password) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(password.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is required by every Java platform", e);
+        }
+    }
+
+    private long fanout(int bucket) {
+        return segment.get(LONG, HEADER_BYTES + (long) bucket * Long.BYTES);
+    }
+
+    private long entry(long index) {
+        return segment.get(LONG, HEADER_BYTES + FANOUT_BYTES + index * Long.BYTES);
+    }
+}
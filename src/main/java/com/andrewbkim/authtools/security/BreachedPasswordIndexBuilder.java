@@ -0,0 +1,141 @@
+package com.andrewbkim.authtools.security;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+
+/**
+ * Converts a HIBP-style text dump ({@code SHA1HEX[:count]} per line, ordered by hash, as in
+ * the "ordered by hash" download or the output of the range downloader) into the binary
+ * format read by {@link BreachedPasswordIndex}.
+ * <p>
+ * The dump is streamed once and entries are written as they are read, so memory use does
+ * not depend on the corpus size. Input that is not in hash order is rejected rather than
+ * sorted in memory.
+ * <pre>
+ * ./gradlew buildBreachedPasswordIndex -Pinput=pwned-passwords-sha1-ordered-by-hash.txt -Poutput=breached.idx
+ * </pre>
+ */
+public final class BreachedPasswordIndexBuilder {
+
+    private BreachedPasswordIndexBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BreachedPasswordIndexBuilder <hash dump> <index file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        long entries = build(Path.of(args[0]), Path.of(args[1]));
+        System.out.printf("Indexed %,d hashes into %s in %,d ms%n",
+                entries, args[1], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Builds an index from a text dump.
+     * @param dump the ordered hash dump
+     * @param index where to write the index; replaced atomically once complete
+     * @return the number of distinct entries written
+     * @throws IOException if the dump cannot be read, is malformed or is out of order
+     */
+    public static long build(Path dump, Path index) throws IOException {
+        Path partial = index.resolveSibling(index.getFileName() + ".partial");
+        long[] bucketCounts = new long[BreachedPasswordIndex.BUCKETS];
+        long entries = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(dump, StandardCharsets.US_ASCII);
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            // Entries go after the header and fanout, which are written last
+            channel.position(BreachedPasswordIndex.HEADER_BYTES + BreachedPasswordIndex.FANOUT_BYTES);
+            OutputStream channelStream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(channelStream, 1 << 20));
+
+            int previousPrefix = -1;
+            long previousKey = 0;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                byte[] sha1 = parse(line, lineNumber);
+                int prefix = BreachedPasswordIndex.prefix(sha1);
+                long key = BreachedPasswordIndex.key(sha1);
+
+                if (prefix == previousPrefix) {
+                    int comparison = Long.compareUnsigned(key, previousKey);
+                    if (comparison == 0) {
+                        // Distinct hashes sharing the first 80 bits collapse into one entry
+                        continue;
+                    }
+                    if (comparison < 0) {
+                        throw outOfOrder(lineNumber);
+                    }
+                } else if (prefix < previousPrefix) {
+                    throw outOfOrder(lineNumber);
+                }
+
+                out.writeLong(key);
+                bucketCounts[prefix]++;
+                entries++;
+                previousPrefix = prefix;
+                previousKey = key;
+            }
+            out.flush();
+
+            ByteBuffer head = ByteBuffer.allocate((int) (BreachedPasswordIndex.HEADER_BYTES + BreachedPasswordIndex.FANOUT_BYTES));
+            head.putInt(BreachedPasswordIndex.MAGIC)
+                    .putInt(BreachedPasswordIndex.VERSION)
+                    .putLong(entries);
+            long offset = 0;
+            for (long count : bucketCounts) {
+                head.putLong(offset);
+                offset += count;
+            }
+            head.putLong(offset);
+            head.flip();
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+
+        Files.move(partial, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries;
+    }
+
+    private static byte[] parse(String line, long lineNumber) throws IOException {
+        int end = line.indexOf(':');
+        String hex = (end < 0 ? line : line.substring(0, end)).strip();
+        if (hex.length() != 40) {
+            throw new IOException("Line " + lineNumber + " does not start with a SHA-1 hash");
+        }
+        try {
+            return HexFormat.of().parseHex(hex);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Line " + lineNumber + " does not start with a SHA-1 hash", e);
+        }
+    }
+
+    private static IOException outOfOrder(long lineNumber) {
+        return new IOException("Line " + lineNumber + " is out of hash order; the dump must be ordered by hash");
+    }
+}
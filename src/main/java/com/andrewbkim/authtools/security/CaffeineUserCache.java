@@ -0,0 +1,51 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.util.EmailAddresses;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+
+/**
+ * A bounded, TTL-evicting {@link UserCache} for form login, so a returning user costs one
+ * password check and no query.
+ * <p>
+ * Only enabled accounts are cached. An unverified account is therefore always read fresh,
+ * and confirming a token can never leave a stale "disabled" entry behind. A password
+ * re-hash evicts the entry explicitly.
+ * <p>
+ * Entries are copies, and so is every hit: the details handed out become the principal,
+ * whose password the authentication manager erases after login.
+ */
+public class CaffeineUserCache implements UserCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    public CaffeineUserCache(long maxSize, Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails cached = cache.getIfPresent(EmailAddresses.normalize(username));
+        return cached == null ? null : User.withUserDetails(cached).build();
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        if (user.isEnabled()) {
+            cache.put(EmailAddresses.normalize(user.getUsername()), User.withUserDetails(user).build());
+        }
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(EmailAddresses.normalize(username));
+    }
+}
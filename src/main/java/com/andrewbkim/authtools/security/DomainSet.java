@@ -0,0 +1,152 @@
+package com.andrewbkim.authtools.security;
+
+import java.io.IOException;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * An immutable set of domain suffixes. An entry matches the domain itself and every
+ * subdomain, so {@code mailinator.com} (or {@code *.mailinator.com}) also covers
+ * {@code eu.mailinator.com}.
+ * <p>
+ * Entries are stored with their labels reversed ({@code com.mailinator}), sorted, and packed
+ * back to back into one byte array indexed by an offset array: about one byte per character
+ * plus four per entry, instead of a String and a hash node per domain. Reversal turns
+ * "is any suffix of this domain listed" into a binary search for each label-aligned
+ * prefix of the reversed domain.
+ */
+final class DomainSet {
+
+    static final DomainSet EMPTY = new DomainSet(new byte[0], new int[]{0});
+
+    private final byte[] data;
+    private final int[] offsets;
+
+    private DomainSet(byte[] data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Reads one domain per line; blank lines and {@code #} comments are ignored.
+     */
+    static DomainSet load(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return of(lines);
+        }
+    }
+
+    static DomainSet of(Stream<String> domains) {
+        String[] reversed = domains
+                .map(DomainSet::normalize)
+                .filter(Objects::nonNull)
+                .map(DomainSet::reverseLabels)
+                .sorted()
+                .distinct()
+                .toArray(String[]::new);
+
+        int[] offsets = new int[reversed.length + 1];
+        int size = 0;
+        for (int i = 0; i < reversed.length; i++) {
+            offsets[i] = size;
+            size += reversed[i].length();
+        }
+        offsets[reversed.length] = size;
+
+        byte[] data = new byte[size];
+        for (int i = 0; i < reversed.length; i++) {
+            // Entries are ASCII after IDN conversion, so one char is one byte
+            byte[] entry = reversed[i].getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(entry, 0, data, offsets[i], entry.length);
+        }
+        return new DomainSet(data, offsets);
+    }
+
+    /**
+     * @param domain a domain name in any casing
+     * @return true if the domain or one of its parent domains is listed
+     */
+    boolean matches(String domain) {
+        if (size() == 0) {
+            return false;
+        }
+        String normalized = normalize(domain);
+        if (normalized == null) {
+            return false;
+        }
+        byte[] key = reverseLabels(normalized).getBytes(StandardCharsets.US_ASCII);
+        for (int end = 1; end <= key.length; end++) {
+            if ((end == key.length || key[end] == '.') && contains(key, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return offsets.length - 1;
+    }
+
+    private boolean contains(byte[] key, int length) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = Arrays.compareUnsigned(data, offsets[mid], offsets[mid + 1], key, 0, length);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lower-cases, strips wildcards, dots and comments, and converts to ASCII (punycode).
+     * @return the bare domain, or null if the line holds none
+     */
+    private static String normalize(String line) {
+        String domain = line;
+        int comment = domain.indexOf('#');
+        if (comment >= 0) {
+            domain = domain.substring(0, comment);
+        }
+        domain = domain.strip();
+        if (domain.startsWith("*.")) {
+            domain = domain.substring(2);
+        }
+        while (domain.startsWith(".")) {
+            domain = domain.substring(1);
+        }
+        while (domain.endsWith(".")) {
+            domain = domain.substring(0, domain.length() - 1);
+        }
+        if (domain.isEmpty()) {
+            return null;
+        }
+        try {
+            return IDN.toASCII(domain).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String reverseLabels(String domain) {
+        StringBuilder reversed = new StringBuilder(domain.length());
+        int end = domain.length();
+        for (int dot = domain.lastIndexOf('.'); dot >= 0; dot = domain.lastIndexOf('.', end - 1)) {
+            reversed.append(domain, dot + 1, end).append('.');
+            end = dot;
+        }
+        return reversed.append(domain, 0, end).toString();
+    }
+}
@@ -0,0 +1,114 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.config.EmailDomainProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Decides whether an email address's domain may register, from a blocklist and an
+ * allowlist file. Both lists are held in one immutable snapshot; a reload builds the new
+ * snapshot off the request path and swaps it in with a single volatile write, so requests
+ * never wait for (or see half of) a reload.
+ */
+@Slf4j
+@Component
+public class EmailDomainFilter {
+
+    private record Snapshot(DomainSet blocked, DomainSet allowed, FileTime blockedModified, FileTime allowedModified) {
+    }
+
+    private final EmailDomainProperties properties;
+    private final Counter rejected;
+    private volatile Snapshot snapshot;
+
+    public EmailDomainFilter(EmailDomainProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        try {
+            this.snapshot = load(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the email domain lists", e);
+        }
+        this.rejected = Counter.builder("auth.email.domain.rejected")
+                .description("Email addresses refused because of their domain")
+                .register(meterRegistry);
+        Gauge.builder("auth.email.domain.entries", this, filter -> filter.snapshot.blocked().size())
+                .description("Domains on each email domain list")
+                .tag("list", "blocked")
+                .register(meterRegistry);
+        Gauge.builder("auth.email.domain.entries", this, filter -> filter.snapshot.allowed().size())
+                .description("Domains on each email domain list")
+                .tag("list", "allowed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param email an email address
+     * @return false if its domain is blocklisted and not allowlisted
+     */
+    public boolean isAllowed(String email) {
+        Snapshot current = snapshot;
+        int at = email.lastIndexOf('@');
+        if (at < 0 || current.blocked().size() == 0) {
+            return true;
+        }
+        String domain = email.substring(at + 1);
+        if (current.blocked().matches(domain) && !current.allowed().matches(domain)) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Re-reads whichever list file has changed since the last load. A file that fails to
+     * load leaves the current snapshot in place.
+     */
+    @Scheduled(fixedDelayString = "${auth-tools.email-domains.reload-interval:PT1M}")
+    public void reloadIfChanged() {
+        try {
+            Snapshot reloaded = load(snapshot);
+            if (reloaded != snapshot) {
+                snapshot = reloaded;
+                log.info("Reloaded email domain lists: {} blocked, {} allowed",
+                        reloaded.blocked().size(), reloaded.allowed().size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Reloading the email domain lists failed, keeping the current lists", e);
+        }
+    }
+
+    private Snapshot load(Snapshot previous) throws IOException {
+        FileTime blockedModified = lastModified(properties.getBlocklistFile());
+        FileTime allowedModified = lastModified(properties.getAllowlistFile());
+        if (previous != null
+                && blockedModified.equals(previous.blockedModified())
+                && allowedModified.equals(previous.allowedModified())) {
+            return previous;
+        }
+        DomainSet blocked = previous != null && blockedModified.equals(previous.blockedModified())
+                ? previous.blocked()
+                : read(properties.getBlocklistFile());
+        DomainSet allowed = previous != null && allowedModified.equals(previous.allowedModified())
+                ? previous.allowed()
+                : read(properties.getAllowlistFile());
+        return new Snapshot(blocked, allowed, blockedModified, allowedModified);
+    }
+
+    private static DomainSet read(Path file) throws IOException {
+        return file == null ? DomainSet.EMPTY : DomainSet.load(file);
+    }
+
+    private static FileTime lastModified(Path file) throws IOException {
+        return file == null ? FileTime.fromMillis(0) : Files.getLastModifiedTime(file);
+    }
+}
@@ -0,0 +1,74 @@
+package com.andrewbkim.authtools.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of HMAC-SHA256 keys addressed by id. New signatures always use the active key,
+ * while any key in the ring is accepted for verification so keys can be rotated without
+ * invalidating tokens already in users' inboxes.
+ */
+public final class HmacKeyRing {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+
+    private final String activeKeyId;
+    private final Map<String, Mac> prototypes = new HashMap<>();
+
+    public HmacKeyRing(String activeKeyId, Map<String, String> base64Keys) {
+        if (activeKeyId == null || !base64Keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active signing key '" + activeKeyId + "' is not in the key ring");
+        }
+        this.activeKeyId = activeKeyId;
+        base64Keys.forEach((id, base64Key) -> {
+            byte[] key = Base64.getDecoder().decode(base64Key);
+            if (key.length < MIN_KEY_BYTES) {
+                throw new IllegalArgumentException("Signing key '" + id + "' must be at least " + MIN_KEY_BYTES + " bytes");
+            }
+            if (id.getBytes(StandardCharsets.UTF_8).length > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Signing key id '" + id + "' is too long");
+            }
+            prototypes.put(id, newMac(key));
+        });
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * @return the HMAC of the payload, or {@code null} if the key id is not in the ring
+     */
+    public byte[] sign(String keyId, byte[] payload) {
+        Mac prototype = prototypes.get(keyId);
+        if (prototype == null) {
+            return null;
+        }
+        return copyOf(prototype).doFinal(payload);
+    }
+
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    private static Mac copyOf(Mac prototype) {
+        // Mac instances are not thread-safe; cloning an initialised one is cheaper than re-keying
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC provider does not support cloning", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.andrewbkim.authtools.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lets operators see which accounts and client addresses are locked out of form login
+ * ({@code GET /actuator/lockouts}) and lift a lockout early
+ * ({@code DELETE /actuator/lockouts/{account|client}/{key}}).
+ */
+@Component
+@Endpoint(id = "lockouts")
+@ConditionalOnProperty(prefix = "auth-tools.login.throttle", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LockoutEndpoint {
+
+    private final LoginFailureTracker failureTracker;
+
+    @ReadOperation
+    public Map<String, List<LoginFailureTracker.Lockout>> lockouts() {
+        return Map.of(
+                "accounts", failureTracker.lockouts(LoginFailureTracker.Kind.ACCOUNT),
+                "clients", failureTracker.lockouts(LoginFailureTracker.Kind.CLIENT)
+        );
+    }
+
+    @DeleteOperation
+    public boolean unlock(@Selector String kind, @Selector String key) {
+        return failureTracker.unlock(LoginFailureTracker.Kind.valueOf(kind.toUpperCase(Locale.ROOT)), key);
+    }
+}
@@ -0,0 +1,205 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.config.LoginProperties;
+import com.andrewbkim.authtools.util.EmailAddresses;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks failed logins per account and per client address and decides when either is
+ * locked out. Each key holds one small immutable record: a failure count that halves after
+ * every half-life without a new failure, and the instant its lockout ends. Once the count
+ * reaches the policy threshold, the key is locked for the initial lockout, doubling with
+ * every further failure up to the ceiling.
+ * <p>
+ * Checking a key is a lock-free cache read. Recording a failure updates the key
+ * atomically in place. Both maps are size-bounded, and keys are dropped once their lock
+ * has run out and their count has decayed to nothing.
+ */
+public class LoginFailureTracker {
+
+    public enum Kind {
+        ACCOUNT,
+        CLIENT
+    }
+
+    /**
+     * A key that is currently locked, as reported to operators.
+     */
+    public record Lockout(Kind kind, String key, int failures, Duration remaining) {
+    }
+
+    private record Failures(int count, long lastFailureNanos, long lockedUntilNanos) {
+    }
+
+    private final Ticker ticker;
+    private final long halfLifeNanos;
+    private final Tracked accounts;
+    private final Tracked clients;
+    private final Counter accountFailures;
+    private final Counter clientFailures;
+
+    public LoginFailureTracker(LoginProperties.Throttle properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.ticker = ticker;
+        this.halfLifeNanos = properties.getDecayHalfLife().toNanos();
+        this.accounts = new Tracked(properties.getAccount(), properties, ticker);
+        this.clients = new Tracked(properties.getClient(), properties, ticker);
+        this.accountFailures = failures(meterRegistry, Kind.ACCOUNT);
+        this.clientFailures = failures(meterRegistry, Kind.CLIENT);
+        Gauge.builder("auth.login.lockouts", this, tracker -> tracker.countLockouts(Kind.ACCOUNT))
+                .description("Keys currently locked out of form login")
+                .tag("key", "account")
+                .register(meterRegistry);
+        Gauge.builder("auth.login.lockouts", this, tracker -> tracker.countLockouts(Kind.CLIENT))
+                .description("Keys currently locked out of form login")
+                .tag("key", "client")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param username the login name as typed
+     * @param client the remote address, or {@code null} if unknown
+     * @return nanoseconds until both the account and the client may try again, {@code 0} if they may now
+     */
+    public long lockedForNanos(String username, String client) {
+        long now = ticker.read();
+        long accountWait = remaining(accounts.cache.getIfPresent(EmailAddresses.normalize(username)), now);
+        long clientWait = client == null ? 0 : remaining(clients.cache.getIfPresent(client), now);
+        return Math.max(accountWait, clientWait);
+    }
+
+    /**
+     * Counts a wrong password (or unknown account) against both the account and the client.
+     * @param username the login name as typed
+     * @param client the remote address, or {@code null} if unknown
+     */
+    public void recordFailure(String username, String client) {
+        long now = ticker.read();
+        accounts.fail(EmailAddresses.normalize(username), now);
+        accountFailures.increment();
+        if (client != null) {
+            clients.fail(client, now);
+            clientFailures.increment();
+        }
+    }
+
+    /**
+     * Forgets the account's failures after a successful login. The client's are kept, so an
+     * attacker cannot reset its count by logging into an account of its own.
+     * @param username the login name as typed
+     */
+    public void recordSuccess(String username) {
+        accounts.cache.invalidate(EmailAddresses.normalize(username));
+    }
+
+    /**
+     * @param kind accounts or clients
+     * @return the keys of that kind that are locked right now
+     */
+    public List<Lockout> lockouts(Kind kind) {
+        long now = ticker.read();
+        List<Lockout> lockouts = new ArrayList<>();
+        for (Map.Entry<String, Failures> entry : tracked(kind).cache.asMap().entrySet()) {
+            long remaining = remaining(entry.getValue(), now);
+            if (remaining > 0) {
+                lockouts.add(new Lockout(kind, entry.getKey(),
+                        decay(entry.getValue(), now), Duration.ofNanos(remaining)));
+            }
+        }
+        return lockouts;
+    }
+
+    /**
+     * Counts what {@link #lockouts} would list, without building the list; read on every scrape.
+     */
+    private int countLockouts(Kind kind) {
+        long now = ticker.read();
+        int count = 0;
+        for (Failures failures : tracked(kind).cache.asMap().values()) {
+            if (remaining(failures, now) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lifts a lockout and forgets the key's failures.
+     * @param kind accounts or clients
+     * @param key the account email or client address
+     * @return true if the key was being tracked
+     */
+    public boolean unlock(Kind kind, String key) {
+        String normalized = kind == Kind.ACCOUNT ? EmailAddresses.normalize(key) : key;
+        return tracked(kind).cache.asMap().remove(normalized) != null;
+    }
+
+    private Tracked tracked(Kind kind) {
+        return kind == Kind.ACCOUNT ? accounts : clients;
+    }
+
+    private int decay(Failures failures, long now) {
+        long halvings = (now - failures.lastFailureNanos()) / halfLifeNanos;
+        return halvings >= Integer.SIZE ? 0 : failures.count() >>> halvings;
+    }
+
+    private static long remaining(Failures failures, long now) {
+        return failures == null ? 0 : Math.max(0, failures.lockedUntilNanos() - now);
+    }
+
+    private static Counter failures(MeterRegistry meterRegistry, Kind kind) {
+        return Counter.builder("auth.login.failures")
+                .description("Failed form logins, counted per account and per client")
+                .tag("key", kind.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+    }
+
+    private final class Tracked {
+
+        private final LoginProperties.Policy policy;
+        private final Cache<String, Failures> cache;
+
+        private Tracked(LoginProperties.Policy policy, LoginProperties.Throttle properties, Ticker ticker) {
+            this.policy = policy;
+            // Long enough for any lock to run out and for a threshold-sized count to decay to zero
+            int halvingsToZero = Integer.SIZE - Integer.numberOfLeadingZeros(policy.getThreshold());
+            Duration decayed = properties.getDecayHalfLife().multipliedBy(halvingsToZero);
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxKeys())
+                    .expireAfterWrite(decayed.compareTo(policy.getMaxLockout()) > 0 ? decayed : policy.getMaxLockout())
+                    .ticker(ticker)
+                    .build();
+        }
+
+        private void fail(String key, long now) {
+            cache.asMap().compute(key, (k, previous) -> {
+                int count = (previous == null ? 0 : decay(previous, now)) + 1;
+                long lockedUntil = previous == null ? now : previous.lockedUntilNanos();
+                if (count >= policy.getThreshold()) {
+                    lockedUntil = Math.max(lockedUntil, now + lockout(count - policy.getThreshold()));
+                }
+                return new Failures(count, now, lockedUntil);
+            });
+        }
+
+        private long lockout(int doublings) {
+            long initial = policy.getInitialLockout().toNanos();
+            long max = policy.getMaxLockout().toNanos();
+            // Stop doubling before the shift could overflow
+            if (doublings >= Long.numberOfLeadingZeros(initial) - 1) {
+                return max;
+            }
+            return Math.min(initial << doublings, max);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.andrewbkim.authtools.security;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated password must not appear in the breached-password index. Always valid
+ * when no index is configured.
+ */
+@Documented
+@Constraint(validatedBy = NotBreachedValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NotBreached {
+
+    String message() default "This password has appeared in a data breach, please choose another";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,23 @@
+package com.andrewbkim.authtools.security;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Checks {@link NotBreached} passwords against the mapped index, if one is configured.
+ * Created by Spring's validator factory, so the index is injected.
+ */
+public class NotBreachedValidator implements ConstraintValidator<NotBreached, CharSequence> {
+
+    private final BreachedPasswordIndex index;
+
+    public NotBreachedValidator(ObjectProvider<BreachedPasswordIndex> index) {
+        this.index = index.getIfAvailable();
+    }
+
+    @Override
+    public boolean isValid(CharSequence password, ConstraintValidatorContext context) {
+        return password == null || index == null || !index.contains(password);
+    }
+}
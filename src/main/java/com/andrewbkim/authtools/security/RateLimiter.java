@@ -0,0 +1,68 @@
+package com.andrewbkim.authtools.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A keyed rate limiter implementing the generic cell rate algorithm (GCRA): each key holds
+ * a single {@link AtomicLong}, its theoretical arrival time, and a request is admitted by
+ * CAS-ing it forward by one emission interval. That is equivalent to a token bucket of
+ * {@code permits} refilled over {@code period}, without a refill thread or a lock.
+ * <p>
+ * Keys live in a size-bounded Caffeine cache and are dropped once idle for a full period,
+ * at which point their bucket would be full again anyway, so eviction never grants or
+ * loses a permit. A cache hit is a lock-free read.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final Ticker ticker;
+    private final Cache<String, AtomicLong> cells;
+
+    public RateLimiter(int permits, Duration period, long maxKeys, Ticker ticker) {
+        if (permits < 1 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Rate limit needs at least one permit per positive period");
+        }
+        this.burstNanos = period.toNanos();
+        this.emissionIntervalNanos = burstNanos / permits;
+        this.ticker = ticker;
+        this.cells = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(period)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Takes a permit for the given key if one is available.
+     * @param key the client IP, email address or other identity being limited
+     * @return {@code 0} if the request is admitted, otherwise the nanoseconds until it would be
+     */
+    public long tryAcquire(String key) {
+        AtomicLong cell = cells.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = ticker.read();
+        while (true) {
+            long arrival = cell.get();
+            long next = Math.max(arrival, now) + emissionIntervalNanos;
+            long allowedAt = next - burstNanos;
+            if (allowedAt > now) {
+                return allowedAt - now;
+            }
+            if (cell.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return the approximate number of keys currently tracked
+     */
+    public long trackedKeys() {
+        return cells.estimatedSize();
+    }
+}
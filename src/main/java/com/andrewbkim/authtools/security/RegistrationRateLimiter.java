@@ -0,0 +1,81 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.config.RateLimitProperties;
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import com.andrewbkim.authtools.util.EmailAddresses;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Throttles registration and token resends per client IP and per normalized email, so a
+ * single client cannot keep the hashing pool or the SMTP quota busy. Rejections surface as
+ * 429 with a Retry-After header.
+ */
+@Component
+@ConditionalOnProperty(prefix = "auth-tools.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RegistrationRateLimiter {
+
+    private static final String MESSAGE = "Too many requests, please try again later";
+
+    private final RateLimiter clientLimiter;
+    private final RateLimiter emailLimiter;
+    private final Counter clientRejections;
+    private final Counter emailRejections;
+
+    public RegistrationRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.clientLimiter = create(properties.getClient(), properties.getMaxKeys());
+        this.emailLimiter = create(properties.getEmail(), properties.getMaxKeys());
+        this.clientRejections = rejections(meterRegistry, "client");
+        this.emailRejections = rejections(meterRegistry, "email");
+        Gauge.builder("auth.ratelimit.keys", clientLimiter, RateLimiter::trackedKeys)
+                .description("Keys currently tracked by the registration rate limiter")
+                .tag("key", "client")
+                .register(meterRegistry);
+        Gauge.builder("auth.ratelimit.keys", emailLimiter, RateLimiter::trackedKeys)
+                .description("Keys currently tracked by the registration rate limiter")
+                .tag("key", "email")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param address the remote address of the client
+     * @throws RetryLaterException if the client has used up its allowance
+     */
+    public void checkClient(String address) {
+        long waitNanos = clientLimiter.tryAcquire(address);
+        if (waitNanos > 0) {
+            clientRejections.increment();
+            throw new RetryLaterException(MESSAGE, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(waitNanos));
+        }
+    }
+
+    /**
+     * @param email the email address named in the request, in any casing
+     * @throws RetryLaterException if the address has used up its allowance
+     */
+    public void checkEmail(String email) {
+        long waitNanos = emailLimiter.tryAcquire(EmailAddresses.normalize(email));
+        if (waitNanos > 0) {
+            emailRejections.increment();
+            throw new RetryLaterException(MESSAGE, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private static RateLimiter create(RateLimitProperties.Limit limit, long maxKeys) {
+        return new RateLimiter(limit.getPermits(), limit.getPeriod(), maxKeys, Ticker.systemTicker());
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("auth.ratelimit.rejected")
+                .description("Registration and resend requests refused by the rate limiter")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+}
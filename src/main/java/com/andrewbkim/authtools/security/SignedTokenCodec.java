@@ -0,0 +1,93 @@
+package com.andrewbkim.authtools.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Encodes and verifies self-contained verification tokens of the form
+ * {@code base64url(payload) "." base64url(hmac)}, where the payload carries a format
+ * version, the signing key id, the user id, the expiry and a random nonce.
+ */
+public class SignedTokenCodec {
+
+    private static final byte VERSION = 1;
+    private static final int NONCE_BYTES = 8;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final HmacKeyRing keyRing;
+    private final TokenGenerator random;
+
+    public SignedTokenCodec(HmacKeyRing keyRing, TokenGenerator random) {
+        this.keyRing = keyRing;
+        this.random = random;
+    }
+
+    public record Claims(long userId, Instant expiresAt) {
+        public boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+
+    public String encode(long userId, Instant expiresAt) {
+        byte[] keyId = keyRing.activeKeyId().getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+
+        byte[] payload = ByteBuffer.allocate(2 + keyId.length + Long.BYTES * 2 + NONCE_BYTES)
+                .put(VERSION)
+                .put((byte) keyId.length)
+                .put(keyId)
+                .putLong(userId)
+                .putLong(expiresAt.getEpochSecond())
+                .put(nonce)
+                .array();
+
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(keyRing.sign(keyRing.activeKeyId(), payload));
+    }
+
+    /**
+     * @return the token's claims if it is well formed and carries a valid signature from a key
+     * in the ring, otherwise empty. Expiry is not checked here.
+     */
+    public Optional<Claims> decode(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (buffer.remaining() < 2 || buffer.get() != VERSION) {
+            return Optional.empty();
+        }
+        int keyIdLength = buffer.get();
+        if (keyIdLength < 0 || buffer.remaining() != keyIdLength + Long.BYTES * 2 + NONCE_BYTES) {
+            return Optional.empty();
+        }
+        byte[] keyId = new byte[keyIdLength];
+        buffer.get(keyId);
+
+        byte[] expected = keyRing.sign(new String(keyId, StandardCharsets.UTF_8), payload);
+        if (expected == null || !MessageDigest.isEqual(expected, signature)) {
+            return Optional.empty();
+        }
+
+        long userId = buffer.getLong();
+        Instant expiresAt = Instant.ofEpochSecond(buffer.getLong());
+        return Optional.of(new Claims(userId, expiresAt));
+    }
+}
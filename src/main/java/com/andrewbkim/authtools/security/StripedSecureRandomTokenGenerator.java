@@ -0,0 +1,59 @@
+package com.andrewbkim.authtools.security;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.security.DrbgParameters.Capability.NONE;
+
+/**
+ * A {@link TokenGenerator} backed by several independent DRBG instances. Each instance
+ * serializes its callers, so spreading threads across stripes keeps concurrent
+ * registrations from queueing on one lock, unlike {@link java.util.UUID#randomUUID()}
+ * which shares a single SecureRandom across the JVM.
+ */
+public class StripedSecureRandomTokenGenerator implements TokenGenerator {
+
+    private final SecureRandom[] stripes;
+    private final int tokenBytes;
+
+    /**
+     * @param tokenBits   the token size, 128 or 256
+     * @param stripeCount the number of independent generators; rounded up to a power of two
+     */
+    public StripedSecureRandomTokenGenerator(int tokenBits, int stripeCount) {
+        if (tokenBits != 128 && tokenBits != 256) {
+            throw new IllegalArgumentException("Token size must be 128 or 256 bits, was " + tokenBits);
+        }
+        this.tokenBytes = tokenBits / Byte.SIZE;
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new SecureRandom[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = newDrbg();
+        }
+    }
+
+    @Override
+    public byte[] generate() {
+        byte[] token = new byte[tokenBytes];
+        nextBytes(token);
+        return token;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        stripes[ThreadLocalRandom.current().nextInt() & (stripes.length - 1)].nextBytes(bytes);
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG", DrbgParameters.instantiation(256, NONE, null));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("DRBG SecureRandom is not available", e);
+        }
+    }
+}
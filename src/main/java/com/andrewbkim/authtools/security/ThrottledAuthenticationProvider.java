@@ -0,0 +1,46 @@
+package com.andrewbkim.authtools.security;
+
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+/**
+ * A {@link DaoAuthenticationProvider} that refuses locked-out accounts and clients before
+ * loading the user or comparing a password, so guesses against a locked key cost a cache
+ * read instead of a BCrypt verify.
+ */
+public class ThrottledAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final LoginFailureTracker failureTracker;
+
+    public ThrottledAuthenticationProvider(UserDetailsService userDetailsService, LoginFailureTracker failureTracker) {
+        super(userDetailsService);
+        this.failureTracker = failureTracker;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        String client = authentication.getDetails() instanceof WebAuthenticationDetails details
+                ? details.getRemoteAddress()
+                : null;
+
+        if (failureTracker.lockedForNanos(username, client) > 0) {
+            throw new LockedException("Too many failed login attempts, please try again later");
+        }
+
+        Authentication result;
+        try {
+            result = super.authenticate(authentication);
+        } catch (BadCredentialsException e) {
+            failureTracker.recordFailure(username, client);
+            throw e;
+        }
+        failureTracker.recordSuccess(username);
+        return result;
+    }
+}
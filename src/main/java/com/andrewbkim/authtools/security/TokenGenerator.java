@@ -0,0 +1,18 @@
+package com.andrewbkim.authtools.security;
+
+/**
+ * Source of unguessable random bytes for verification tokens and nonces.
+ */
+public interface TokenGenerator {
+
+    /**
+     * @return a new token of the configured size
+     */
+    byte[] generate();
+
+    /**
+     * Fills the given array with random bytes.
+     * @param bytes the array to fill
+     */
+    void nextBytes(byte[] bytes);
+}
@@ -0,0 +1,91 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.IdempotencyProperties;
+import com.andrewbkim.authtools.entity.IdempotencyRecord;
+import com.andrewbkim.authtools.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Keeps idempotency keys in the idempotency_record table so every node sees them. A key is
+ * reserved by inserting a pending row, which lapses after the pending timeout if its node
+ * dies, and completing it stores the response for the replay TTL.
+ */
+@Slf4j
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+
+    private static final int MAX_BODY_LENGTH = 4000;
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyProperties properties;
+
+    public DatabaseIdempotencyStore(IdempotencyRecordRepository repository, TransactionTemplate transactionTemplate,
+                                    IdempotencyProperties properties) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean reserve(String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.deleteIfExpired(key, now);
+                repository.reserve(key, fingerprint, now.plus(properties.getPendingTimeout()));
+            });
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<Entry> find(String key) {
+        LocalDateTime now = LocalDateTime.now();
+        return repository.findById(key)
+                .filter(record -> record.getExpiresAt().isAfter(now))
+                .map(DatabaseIdempotencyStore::toEntry);
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        String body = new String(response.body(), StandardCharsets.UTF_8);
+        if (body.length() > MAX_BODY_LENGTH) {
+            log.warn("Response for idempotency key is too large to store ({} chars); it will not be replayed",
+                    body.length());
+            release(key);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> repository.complete(key, response.status(),
+                response.contentType(), body, LocalDateTime.now().plus(properties.getTtl())));
+    }
+
+    @Override
+    public void release(String key) {
+        transactionTemplate.executeWithoutResult(status -> repository.deletePending(key));
+    }
+
+    @Scheduled(fixedDelayString = "${auth-tools.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        int purged = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private static Entry toEntry(IdempotencyRecord record) {
+        if (record.getStatus() == null) {
+            return new Entry(record.getFingerprint(), null);
+        }
+        byte[] body = record.getBody() == null ? new byte[0] : record.getBody().getBytes(StandardCharsets.UTF_8);
+        return new Entry(record.getFingerprint(), new StoredResponse(record.getStatus(), record.getContentType(), body));
+    }
+}
@@ -0,0 +1,53 @@
+package com.andrewbkim.authtools.service;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Remembers which idempotency keys have been used and the response each one produced.
+ * A key is first reserved by the request that runs it, then completed with the response,
+ * or released if the response should not be replayed.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * A response as sent to the client.
+     */
+    record StoredResponse(int status, @Nullable String contentType, byte[] body) {
+    }
+
+    /**
+     * A used key: the request fingerprint, and the response once the request has finished.
+     */
+    record Entry(String fingerprint, @Nullable StoredResponse response) {
+
+        public boolean isPending() {
+            return response == null;
+        }
+    }
+
+    /**
+     * Claims a key for a request that is about to run.
+     * @param key the scoped idempotency key
+     * @param fingerprint hash of the request the key is used for
+     * @return true if the caller now owns the key, false if it is already in use
+     */
+    boolean reserve(String key, String fingerprint);
+
+    /**
+     * @param key the scoped idempotency key
+     * @return the entry for the key, if it is in use and has not expired
+     */
+    Optional<Entry> find(String key);
+
+    /**
+     * Records the response of a reserved key, to be replayed until the key expires.
+     */
+    void complete(String key, StoredResponse response);
+
+    /**
+     * Frees a reserved key without recording a response, so a retry runs again.
+     */
+    void release(String key);
+}
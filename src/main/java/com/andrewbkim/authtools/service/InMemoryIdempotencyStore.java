@@ -0,0 +1,42 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.IdempotencyProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Optional;
+
+/**
+ * Keeps idempotency keys in a bounded Caffeine cache that evicts them after the TTL.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(IdempotencyProperties properties) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    @Override
+    public boolean reserve(String key, String fingerprint) {
+        return entries.asMap().putIfAbsent(key, new Entry(fingerprint, null)) == null;
+    }
+
+    @Override
+    public Optional<Entry> find(String key) {
+        return Optional.ofNullable(entries.getIfPresent(key));
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        entries.asMap().computeIfPresent(key, (k, entry) -> new Entry(entry.fingerprint(), response));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.asMap().computeIfPresent(key, (k, entry) -> entry.isPending() ? null : entry);
+    }
+}
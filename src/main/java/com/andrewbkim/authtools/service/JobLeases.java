@@ -0,0 +1,67 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.ClusterProperties;
+import com.andrewbkim.authtools.repository.JobLeaseRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Database-backed leases for jobs that must run on one node at a time. A node takes a
+ * lease with a conditional UPDATE and keeps it by renewing before it lapses; if the node
+ * dies, the lease simply expires and the next node to try takes it over. Node clocks are
+ * compared against each other, so their skew must stay well below the lease duration.
+ */
+@Component
+public class JobLeases {
+
+    private final JobLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+
+    public JobLeases(JobLeaseRepository leaseRepository, TransactionTemplate transactionTemplate,
+                     ClusterProperties properties) {
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = properties.getNodeId();
+    }
+
+    /**
+     * Takes the lease, or renews it if this node already holds it.
+     * @param job the job name
+     * @param duration how long the lease lasts without another renewal
+     * @return true if this node holds the lease until {@code now + duration}
+     */
+    public boolean tryAcquire(String job, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(duration);
+        if (transactionTemplate.execute(status -> leaseRepository.acquire(job, nodeId, now, leaseUntil)) == 1) {
+            return true;
+        }
+        if (leaseRepository.existsById(job)) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> leaseRepository.create(job, nodeId, leaseUntil));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first
+            return false;
+        }
+    }
+
+    /**
+     * Gives the lease up if this node holds it.
+     * @param job the job name
+     */
+    public void release(String job) {
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.release(job, nodeId, LocalDateTime.now()));
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,184 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.MailOutboxProperties;
+import com.andrewbkim.authtools.entity.MailOutboxMessage;
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.andrewbkim.authtools.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the mail outbox in the background so SMTP latency never sits inside a request
+ * transaction. Failed deliveries are retried with exponential backoff and dead-lettered
+ * after {@code maxAttempts}. Up to {@code concurrency} messages of a batch are sent at once
+ * on the application task executor, which runs on virtual threads when they are enabled.
+ * <p>
+ * Several nodes can drain the same outbox: each batch is claimed with a conditional UPDATE
+ * before it is sent, so nodes send disjoint batches. A claim only defers the messages by
+ * {@code claimTimeout}, so a batch held by a node that dies is picked up by another one.
+ */
+@Slf4j
+@Component
+public class MailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final MailOutboxProperties properties;
+    private final Executor mailExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthMetrics metrics;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter deadCounter;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+
+    /**
+     * The mail sender is resolved on the first delivery, which lets the fast-start profile
+     * leave it out of startup.
+     */
+    public MailOutboxDispatcher(MailOutboxRepository outboxRepository, @Lazy JavaMailSender mailSender,
+                                MailOutboxProperties properties,
+                                @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor mailExecutor,
+                                TransactionTemplate transactionTemplate, AuthMetrics metrics) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.properties = properties;
+        this.mailExecutor = mailExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.sentCounter = Counter.builder("auth.mail.outbox.delivered")
+                .description("Outbox messages handed to the mail relay")
+                .register(metrics.registry());
+        this.failedCounter = Counter.builder("auth.mail.outbox.failed")
+                .description("Failed delivery attempts, including ones that will be retried")
+                .register(metrics.registry());
+        this.deadCounter = Counter.builder("auth.mail.outbox.dead.lettered")
+                .description("Outbox messages given up on after the maximum number of attempts")
+                .register(metrics.registry());
+        // Refreshed once per dispatcher run rather than queried on every scrape
+        Gauge.builder("auth.mail.outbox.backlog", pending, AtomicLong::get)
+                .description("Pending outbox messages as of the last dispatcher run")
+                .register(metrics.registry());
+        Gauge.builder("auth.mail.outbox.dead", dead, AtomicLong::get)
+                .description("Dead-lettered outbox messages as of the last dispatcher run")
+                .register(metrics.registry());
+    }
+
+    @Scheduled(fixedDelayString = "${auth-tools.mail.outbox.poll-interval:PT2S}")
+    public void dispatchPending() {
+        List<Long> candidates;
+        do {
+            candidates = outboxRepository.findDueIds(MailOutboxMessage.Status.PENDING, LocalDateTime.now(),
+                    Limit.of(properties.getBatchSize()));
+            deliverAll(claim(candidates));
+        } while (candidates.size() == properties.getBatchSize());
+
+        pending.set(outboxRepository.countByStatus(MailOutboxMessage.Status.PENDING));
+        dead.set(outboxRepository.countByStatus(MailOutboxMessage.Status.DEAD));
+    }
+
+    private List<MailOutboxMessage> claim(List<Long> candidates) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        String claimToken = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = transactionTemplate.execute(status -> outboxRepository.claim(candidates,
+                MailOutboxMessage.Status.PENDING, now, claimToken, now.plus(properties.getClaimTimeout())));
+        return claimed == 0 ? List.of() : outboxRepository.findByClaimTokenOrderById(claimToken);
+    }
+
+    private void deliverAll(List<MailOutboxMessage> batch) {
+        if (properties.getConcurrency() <= 1) {
+            batch.forEach(this::deliver);
+            return;
+        }
+
+        Semaphore permits = new Semaphore(properties.getConcurrency());
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(batch.size());
+        for (MailOutboxMessage outboxMessage : batch) {
+            permits.acquireUninterruptibly();
+            deliveries.add(CompletableFuture.runAsync(() -> {
+                try {
+                    deliver(outboxMessage);
+                } finally {
+                    permits.release();
+                }
+            }, mailExecutor));
+        }
+        CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).join();
+    }
+
+    void deliver(MailOutboxMessage outboxMessage) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(outboxMessage.getRecipient());
+        message.setSubject(outboxMessage.getSubject());
+        message.setText(outboxMessage.getBody());
+
+        long start = System.nanoTime();
+        try {
+            mailSender.send(message);
+        } catch (RuntimeException e) {
+            // Not only MailException: anything else the sender throws would otherwise leave the
+            // message claimed until the claim times out, and abort the rest of a parallel batch
+            failedCounter.increment();
+            recordFailure(outboxMessage, e);
+            return;
+        } finally {
+            metrics.record(AuthMetrics.Phase.MAIL_SEND, start);
+        }
+        sentCounter.increment();
+        outboxRepository.delete(outboxMessage);
+    }
+
+    private void recordFailure(MailOutboxMessage outboxMessage, RuntimeException e) {
+        int attempts = outboxMessage.getAttempts() + 1;
+        outboxMessage.setAttempts(attempts);
+        outboxMessage.setLastError(truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getName()));
+
+        if (attempts >= properties.getMaxAttempts()) {
+            outboxMessage.setStatus(MailOutboxMessage.Status.DEAD);
+            deadCounter.increment();
+            log.error("Giving up on outbox message {} after {} attempts", outboxMessage.getId(), attempts, e);
+        } else {
+            outboxMessage.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            log.warn("Delivery of outbox message {} failed (attempt {}), will retry", outboxMessage.getId(), attempts);
+        }
+        outboxRepository.save(outboxMessage);
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : delay;
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
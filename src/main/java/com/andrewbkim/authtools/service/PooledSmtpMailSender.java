@@ -0,0 +1,221 @@
+package com.andrewbkim.authtools.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link JavaMailSenderImpl} that keeps authenticated SMTP connections open and reuses
+ * them, instead of connecting, negotiating STARTTLS, authenticating and quitting for every
+ * send. Each send call borrows one connection and pushes all of its messages through it.
+ * <p>
+ * At most {@code maxConnections} connections exist, so concurrent senders queue for a free
+ * one rather than flooding the relay. Idle connections are reused most-recently-used first
+ * and closed once they have been idle too long, and a connection is replaced after
+ * {@code maxMessagesPerConnection} messages. A send that fails on a connection the relay
+ * has dropped is retried once on a fresh connection.
+ */
+@Slf4j
+public class PooledSmtpMailSender extends JavaMailSenderImpl implements AutoCloseable {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private static final class PooledConnection {
+
+        private final Transport transport;
+        private int sent;
+        private long lastUsedNanos;
+
+        private PooledConnection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Duration borrowTimeout;
+    private final long maxIdleNanos;
+    private final int maxMessagesPerConnection;
+    private final Timer borrowTimer;
+    private final Counter opened;
+    private final Counter reconnects;
+
+    public PooledSmtpMailSender(int maxConnections, Duration borrowTimeout, Duration maxIdle,
+                                int maxMessagesPerConnection, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConnections, true);
+        this.borrowTimeout = borrowTimeout;
+        this.maxIdleNanos = maxIdle.toNanos();
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+
+        this.borrowTimer = Timer.builder("auth.mail.smtp.borrow")
+                .description("Time spent waiting for a free SMTP connection")
+                .register(meterRegistry);
+        this.opened = Counter.builder("auth.mail.smtp.connections.opened")
+                .description("SMTP connections opened (connect, STARTTLS and AUTH)")
+                .register(meterRegistry);
+        this.reconnects = Counter.builder("auth.mail.smtp.reconnects")
+                .description("Sends retried on a fresh connection after the pooled one failed")
+                .register(meterRegistry);
+        Gauge.builder("auth.mail.smtp.connections.active", permits, p -> maxConnections - p.availablePermits())
+                .description("SMTP connections currently sending")
+                .register(meterRegistry);
+        Gauge.builder("auth.mail.smtp.connections.idle", idle, BlockingDeque::size)
+                .description("Open SMTP connections waiting to be reused")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        acquirePermit();
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledConnection connection = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage mimeMessage = mimeMessages[i];
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessage;
+                try {
+                    prepare(mimeMessage);
+                } catch (MessagingException e) {
+                    failedMessages.put(original, new MailParseException(e));
+                    continue;
+                }
+
+                try {
+                    if (connection == null) {
+                        connection = borrow();
+                    }
+                    send(connection, mimeMessage);
+                } catch (SendFailedException e) {
+                    // Refused recipients; the connection itself is fine
+                    failedMessages.put(original, e);
+                } catch (MessagingException | IllegalStateException e) {
+                    // Most likely the relay dropped a connection we held on to
+                    discard(connection);
+                    connection = null;
+                    try {
+                        connection = open();
+                        reconnects.increment();
+                        send(connection, mimeMessage);
+                    } catch (AuthenticationFailedException retryFailure) {
+                        discard(connection);
+                        connection = null;
+                        failedMessages.put(original, new MailAuthenticationException(retryFailure));
+                    } catch (MessagingException | IllegalStateException retryFailure) {
+                        discard(connection);
+                        connection = null;
+                        failedMessages.put(original, retryFailure);
+                    }
+                }
+
+                if (connection != null && connection.sent >= maxMessagesPerConnection) {
+                    discard(connection);
+                    connection = null;
+                }
+            }
+        } finally {
+            if (connection != null) {
+                connection.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(connection);
+            }
+            permits.release();
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Closes the idle connections. Connections in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+
+    private void acquirePermit() {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new MailSendException("No SMTP connection became free within " + borrowTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", e);
+        } finally {
+            borrowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private PooledConnection borrow() throws MessagingException {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (System.nanoTime() - connection.lastUsedNanos < maxIdleNanos && connection.transport.isConnected()) {
+                return connection;
+            }
+            discard(connection);
+        }
+        return open();
+    }
+
+    private PooledConnection open() throws MessagingException {
+        PooledConnection connection = new PooledConnection(connectTransport());
+        opened.increment();
+        return connection;
+    }
+
+    private static void send(PooledConnection connection, MimeMessage mimeMessage) throws MessagingException {
+        Address[] addresses = mimeMessage.getAllRecipients();
+        connection.transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+        connection.sent++;
+    }
+
+    private static void prepare(MimeMessage mimeMessage) throws MessagingException {
+        // Same as JavaMailSenderImpl: keep a caller-set Message-ID across saveChanges
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+    }
+
+    private static void discard(@Nullable PooledConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Closing an SMTP connection failed", e);
+        }
+    }
+}
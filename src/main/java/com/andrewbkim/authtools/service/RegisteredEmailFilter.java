@@ -0,0 +1,203 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.EmailFilterProperties;
+import com.andrewbkim.authtools.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this email registered?" from memory: "maybe" has to be confirmed against the
+ * database, and "absent" is certain only for registrations this node has seen. The filter
+ * is warmed from app_user in the background after startup (until then every answer is
+ * {@link Answer#UNKNOWN}) and fed every registration made on this node; registrations made
+ * on other nodes are only picked up every {@code refreshInterval}, so in a cluster "absent"
+ * may be wrong for that long. Use it to skip work whose result is re-checked anyway, such
+ * as the pre-insert lookup in front of the unique index, never to answer "not registered".
+ * <p>
+ * The filter is scalable: when a slice reaches its capacity a new one of twice the size
+ * and half the false-positive rate is added, which keeps the overall rate under the target,
+ * until {@code maxMemory} is reached. Deleted users are not removed, so they show up as
+ * false positives until the next restart.
+ */
+@Slf4j
+@Component
+public class RegisteredEmailFilter implements AutoCloseable {
+
+    public enum Answer {
+        /** Not registered as far as this node knows; registrations from other nodes may be missing. */
+        ABSENT,
+        /** Possibly registered; check the database. */
+        MAYBE,
+        /** The filter is disabled or still warming up. */
+        UNKNOWN
+    }
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EmailFilterProperties properties;
+    private final List<BlockedBloomFilter> slices = new CopyOnWriteArrayList<>();
+    private final Counter absent;
+    private final Counter maybe;
+    private final Counter falsePositives;
+    private volatile boolean ready;
+    private volatile boolean saturated;
+    private volatile LocalDateTime refreshedFrom;
+
+    public RegisteredEmailFilter(UserRepository userRepository, TransactionTemplate transactionTemplate,
+                                 EmailFilterProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+        this.absent = Counter.builder("auth.email.filter.checks")
+                .description("Registered-email filter answers")
+                .tag("result", "absent")
+                .register(meterRegistry);
+        this.maybe = Counter.builder("auth.email.filter.checks")
+                .description("Registered-email filter answers")
+                .tag("result", "maybe")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("auth.email.filter.false.positives")
+                .description("\"Maybe\" answers the database then showed to be unregistered")
+                .register(meterRegistry);
+        Gauge.builder("auth.email.filter.entries", this, RegisteredEmailFilter::entries)
+                .description("Emails added to the registered-email filter")
+                .register(meterRegistry);
+        Gauge.builder("auth.email.filter.bytes", this, RegisteredEmailFilter::byteSize)
+                .description("Off-heap memory used by the registered-email filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param email a normalized email
+     * @return whether the email may be registered
+     */
+    public Answer check(String email) {
+        if (!ready) {
+            return Answer.UNKNOWN;
+        }
+        long hash = BlockedBloomFilter.hash(email);
+        for (BlockedBloomFilter slice : slices) {
+            if (slice.mightContain(hash)) {
+                maybe.increment();
+                return Answer.MAYBE;
+            }
+        }
+        absent.increment();
+        return Answer.ABSENT;
+    }
+
+    /**
+     * Adds a newly registered email. Safe to call before warm-up finishes.
+     * @param email a normalized email
+     */
+    public void add(String email) {
+        if (!slices.isEmpty()) {
+            currentSlice().add(BlockedBloomFilter.hash(email));
+        }
+    }
+
+    /**
+     * Records that a {@link Answer#MAYBE} answer turned out to be wrong.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (properties.isEnabled()) {
+            Thread.ofVirtual().name("email-filter-warm-up").start(() -> {
+                try {
+                    load();
+                } catch (RuntimeException e) {
+                    log.error("Could not warm the registered-email filter; every email will be looked up", e);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth-tools.email-filter.refresh-interval:PT5S}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<String> emails = userRepository.findEmailsCreatedSince(refreshedFrom.minus(properties.getRefreshOverlap()));
+        emails.forEach(this::add);
+        refreshedFrom = now;
+    }
+
+    @Override
+    public void close() {
+        ready = false;
+        List<BlockedBloomFilter> closing = List.copyOf(slices);
+        slices.clear();
+        closing.forEach(BlockedBloomFilter::close);
+    }
+
+    void load() {
+        long start = System.nanoTime();
+        LocalDateTime scanStart = LocalDateTime.now();
+        long existing = userRepository.count();
+        slices.add(new BlockedBloomFilter(Math.max(properties.getExpectedEmails(), existing + existing / 4),
+                properties.getFalsePositiveRate() / 2));
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> emails = userRepository.streamAllEmails()) {
+                emails.forEach(this::add);
+            }
+        });
+        refreshedFrom = scanStart;
+        ready = true;
+        log.info("Registered-email filter warmed with {} emails in {} ms ({} KiB)", entries(),
+                (System.nanoTime() - start) / 1_000_000, byteSize() / 1024);
+    }
+
+    /**
+     * The slice new emails go to, adding a bigger one when it is full and memory allows.
+     */
+    private BlockedBloomFilter currentSlice() {
+        BlockedBloomFilter current = slices.getLast();
+        if (!current.isFull() || saturated) {
+            return current;
+        }
+        synchronized (slices) {
+            current = slices.getLast();
+            if (!current.isFull()) {
+                return current;
+            }
+            long capacity = current.added() * 2;
+            double rate = properties.getFalsePositiveRate() / (1L << Math.min(slices.size() + 1, 62));
+            if (byteSize() + BlockedBloomFilter.bytesFor(capacity, rate) > properties.getMaxMemory().toBytes()) {
+                saturated = true;
+                log.warn("Registered-email filter reached its memory budget of {}; false positives will rise",
+                        properties.getMaxMemory());
+                return current;
+            }
+            BlockedBloomFilter next = new BlockedBloomFilter(capacity, rate);
+            slices.add(next);
+            return next;
+        }
+    }
+
+    private long entries() {
+        return slices.stream().mapToLong(BlockedBloomFilter::added).sum();
+    }
+
+    private long byteSize() {
+        return slices.stream().mapToLong(BlockedBloomFilter::byteSize).sum();
+    }
+}
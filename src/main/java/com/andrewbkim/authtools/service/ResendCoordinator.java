@@ -0,0 +1,105 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.VerificationTokenProperties;
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import com.andrewbkim.authtools.util.EmailAddresses;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sits in front of {@link UserService#resendVerificationToken} so that an impatient user
+ * hammering "resend" triggers one token rotation and one email. Concurrent resends for the
+ * same address share the in-flight call and its outcome (single flight), and a resend that
+ * arrives within the resend interval after a successful one is refused with 429.
+ * <p>
+ * Both guards are per instance; the stored token strategy enforces the interval in the
+ * database as well, so requests spread over several instances cannot double-send either.
+ */
+@Service
+public class ResendCoordinator {
+
+    private final UserService userService;
+    private final Duration resendInterval;
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, Long> recentlySent;
+    private final Counter coalesced;
+    private final Counter throttled;
+
+    public ResendCoordinator(UserService userService, VerificationTokenProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.resendInterval = properties.getResendInterval();
+        this.recentlySent = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(resendInterval)
+                .build();
+        this.coalesced = Counter.builder("auth.resend.coalesced")
+                .description("Resend requests that joined an identical request already in flight")
+                .register(meterRegistry);
+        this.throttled = Counter.builder("auth.resend.throttled")
+                .description("Resend requests refused because an email was sent within the resend interval")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Resends the verification email, or joins a resend already running for the address.
+     * @param email the address as entered
+     * @throws RetryLaterException if an email was sent to the address within the interval
+     */
+    public void resend(String email) {
+        String key = EmailAddresses.normalize(email);
+        throwIfRecentlySent(key);
+
+        CompletableFuture<Void> flight = new CompletableFuture<>();
+        CompletableFuture<Void> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            join(leader);
+            return;
+        }
+
+        try {
+            // A leader may have finished between the check above and our taking its place
+            throwIfRecentlySent(key);
+            userService.resendVerificationToken(key);
+            // Recorded before the flight is released, so whoever takes the slot next sees it
+            recentlySent.put(key, System.nanoTime());
+            flight.complete(null);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private void throwIfRecentlySent(String key) {
+        Long sentAt = recentlySent.getIfPresent(key);
+        if (sentAt != null) {
+            throttled.increment();
+            throw new RetryLaterException("A verification email was sent recently, please check your inbox",
+                    HttpStatus.TOO_MANY_REQUESTS, resendInterval.minusNanos(System.nanoTime() - sentAt));
+        }
+    }
+
+    private static void join(CompletableFuture<Void> leader) {
+        try {
+            leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
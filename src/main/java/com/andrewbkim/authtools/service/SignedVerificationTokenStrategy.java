@@ -0,0 +1,57 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.entity.VerificationToken;
+import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.security.SignedTokenCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stateless tokens that carry the user id and expiry under an HMAC signature. Nothing is
+ * written when a token is issued, and confirming one is a single conditional UPDATE.
+ * A resend issues a fresh token without revoking earlier ones; they simply expire.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "auth-tools.token.mode", havingValue = "signed")
+public class SignedVerificationTokenStrategy implements VerificationTokenStrategy {
+
+    private static final Duration EXPIRATION = Duration.ofMinutes(VerificationToken.EXPIRATION_MINUTES);
+
+    private final UserRepository userRepository;
+    private final SignedTokenCodec tokenCodec;
+
+    @Override
+    public String issue(User user) {
+        return tokenCodec.encode(user.getId(), Instant.now().plus(EXPIRATION));
+    }
+
+    @Override
+    public String reissue(User user) {
+        return issue(user);
+    }
+
+    @Override
+    public void confirm(String token) {
+        SignedTokenCodec.Claims claims = tokenCodec.decode(token)
+                .orElseThrow(() -> RegistrationException.INVALID_TOKEN);
+
+        if (claims.isExpired(Instant.now())) {
+            throw RegistrationException.TOKEN_EXPIRED;
+        }
+
+        // The signature proves the account existed, but it may have been reaped or deleted since;
+        // only when no row is updated is it worth a second query to tell which
+        if (userRepository.enableIfDisabled(claims.userId()) == 0) {
+            throw userRepository.existsById(claims.userId())
+                    ? RegistrationException.ALREADY_VERIFIED
+                    : RegistrationException.INVALID_TOKEN;
+        }
+    }
+}
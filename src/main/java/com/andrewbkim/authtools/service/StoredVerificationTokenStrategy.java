@@ -0,0 +1,100 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.VerificationTokenProperties;
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.entity.VerificationToken;
+import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.repository.VerificationTokenRepository;
+import com.andrewbkim.authtools.security.TokenGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Random tokens persisted in the verification_token table, one per user. Tokens travel as
+ * unpadded base64url and are stored as their raw bytes. A resend rotates the user's row in
+ * place with one conditional UPDATE, which also enforces the minimum resend interval across
+ * instances.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "auth-tools.token.mode", havingValue = "stored", matchIfMissing = true)
+public class StoredVerificationTokenStrategy implements VerificationTokenStrategy {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final UserRepository userRepository;
+    private final VerificationTokenRepository tokenRepository;
+    private final TokenGenerator tokenGenerator;
+    private final VerificationTokenProperties properties;
+
+    @Override
+    public String issue(User user) {
+        byte[] token = tokenGenerator.generate();
+        tokenRepository.save(new VerificationToken(token, user));
+        return ENCODER.encodeToString(token);
+    }
+
+    @Override
+    public String reissue(User user) {
+        byte[] token = tokenGenerator.generate();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiryDate = now.plusMinutes(VerificationToken.EXPIRATION_MINUTES);
+        LocalDateTime latestExpiry = expiryDate.minus(properties.getResendInterval());
+        if (tokenRepository.rotate(user.getId(), token, expiryDate, latestExpiry) == 1) {
+            return ENCODER.encodeToString(token);
+        }
+
+        // Nothing rotated: either the current token is too recent, or there is none (e.g. reaped)
+        Optional<VerificationToken> current = tokenRepository.findByUser(user);
+        if (current.isPresent()) {
+            LocalDateTime issuedAt = current.get().getExpiryDate().minusMinutes(VerificationToken.EXPIRATION_MINUTES);
+            throw new RetryLaterException("A verification email was sent recently, please check your inbox",
+                    HttpStatus.TOO_MANY_REQUESTS,
+                    Duration.between(now, issuedAt.plus(properties.getResendInterval())));
+        }
+        tokenRepository.save(new VerificationToken(token, user));
+        return ENCODER.encodeToString(token);
+    }
+
+    /**
+     * Enables the user with one bulk statement, the expiry check being part of the UPDATE.
+     * Concurrent confirmations of the same token (double clicks, link scanners) serialize on
+     * the user row and only the first one enables it. The token is left for the reaper rather
+     * than deleted, so a repeat click finds it and is told the account is already verified;
+     * the {@code enabled = false} guard keeps it from doing anything else. Only a failed
+     * confirmation runs a second query, to tell the client why.
+     */
+    @Override
+    public void confirm(String token) {
+        byte[] tokenBytes = decode(token);
+        LocalDateTime now = LocalDateTime.now();
+        if (userRepository.enableByToken(tokenBytes, now) == 1) {
+            return;
+        }
+
+        LocalDateTime expiryDate = tokenRepository.findExpiryByToken(tokenBytes)
+                .orElseThrow(() -> RegistrationException.INVALID_TOKEN);
+        if (expiryDate.isBefore(now)) {
+            throw RegistrationException.TOKEN_EXPIRED;
+        }
+        throw RegistrationException.ALREADY_VERIFIED;
+    }
+
+    private static byte[] decode(String token) {
+        try {
+            return DECODER.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw RegistrationException.INVALID_TOKEN;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.dto.UserImportRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams an import file one line at a time, so memory use does not depend on its size.
+ * A line that cannot be parsed is returned with an error instead of stopping the import.
+ */
+class UserImportReader implements Closeable {
+
+    enum Format {
+        NDJSON,
+        CSV;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    /**
+     * A parsed line: either {@code row} or {@code error} is set.
+     */
+    record Line(long number, UserImportRow row, String error) {
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectReader jsonReader;
+    private List<String> header;
+    private long lineNumber;
+
+    UserImportReader(Path file, ObjectMapper objectMapper) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.format = Format.of(file);
+        this.jsonReader = objectMapper.readerFor(UserImportRow.class);
+    }
+
+    /**
+     * @return the next non-blank line, or null at the end of the file
+     */
+    Line next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = splitCsv(text).stream().map(name -> name.strip().toLowerCase(Locale.ROOT)).toList();
+                if (!header.contains("email")) {
+                    throw new IOException("The CSV header must name an email column");
+                }
+                continue;
+            }
+            try {
+                return new Line(lineNumber, format == Format.CSV ? parseCsv(text) : parseJson(text), null);
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                String reason = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+                return new Line(lineNumber, null, "Unreadable line: " + reason);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private UserImportRow parseJson(String text) throws JsonProcessingException {
+        return jsonReader.readValue(text);
+    }
+
+    private UserImportRow parseCsv(String text) {
+        List<String> values = splitCsv(text);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("more values than header columns");
+        }
+        UserImportRow row = new UserImportRow();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i).isEmpty() ? null : values.get(i);
+            switch (header.get(i)) {
+                case "email" -> row.setEmail(value);
+                case "password" -> row.setPassword(value);
+                case "password_hash", "passwordhash" -> row.setPasswordHash(value);
+                case "enabled" -> row.setEnabled(Boolean.parseBoolean(value));
+                default -> {
+                    // Extra legacy columns are ignored
+                }
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields and doubled quotes inside them.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
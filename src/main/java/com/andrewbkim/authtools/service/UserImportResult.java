@@ -0,0 +1,11 @@
+package com.andrewbkim.authtools.service;
+
+/**
+ * Outcome of one bulk import run.
+ * @param imported accounts created by this run
+ * @param rejected rows written to the error report by this run
+ * @param resumedAfter the line the run resumed after, 0 for a fresh start
+ * @param lastLine the last line read
+ */
+public record UserImportResult(long imported, long rejected, long resumedAfter, long lastLine) {
+}
@@ -0,0 +1,40 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.UserImportProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a bulk import from the command line and exits, e.g.
+ * <pre>
+ * java -jar auth-tools.jar --spring.main.web-application-type=none \
+ *     --auth-tools.import.file=users.ndjson --auth-tools.import.send-verification=true
+ * </pre>
+ * Rerunning the same command after a failure resumes after the last committed batch.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "auth-tools.import", name = "file")
+@RequiredArgsConstructor
+public class UserImportRunner implements ApplicationRunner {
+
+    private final UserImportService importService;
+    private final UserImportProperties properties;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.nanoTime();
+        UserImportResult result = importService.importUsers(properties.getFile());
+        log.info("Import of {} finished in {} s: {} imported, {} rejected, read up to line {}",
+                properties.getFile(), (System.nanoTime() - start) / 1_000_000_000L,
+                result.imported(), result.rejected(), result.lastLine());
+        System.exit(SpringApplication.exit(context));
+    }
+}
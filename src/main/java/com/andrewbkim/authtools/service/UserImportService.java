@@ -0,0 +1,314 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.UserImportProperties;
+import com.andrewbkim.authtools.dto.RegistrationRequest;
+import com.andrewbkim.authtools.dto.UserImportRow;
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.security.BoundedPasswordEncoder;
+import com.andrewbkim.authtools.util.EmailAddresses;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Imports accounts from legacy systems in bulk. The file is streamed in batches: each batch
+ * is validated with the same rules as registration, checked for existing emails in one
+ * query, hashed in parallel on the import's own threads, and inserted in one transaction
+ * as JDBC batches (user, token and outbox ids all come from pooled sequences).
+ * <p>
+ * After every committed batch the last line number is written to a checkpoint file, and a
+ * rerun resumes after it. Rows that cannot be imported are appended to a CSV error report
+ * with their line number and reason once their batch is checkpointed, so a rerun does not
+ * report them twice; the import carries on without them.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\A\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder hashingEncoder;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final UserImportProperties properties;
+
+    public UserImportService(UserRepository userRepository, UserService userService, EntityManager entityManager,
+                             TransactionTemplate transactionTemplate, PasswordEncoder passwordEncoder,
+                             Validator validator, ObjectMapper objectMapper, UserImportProperties properties) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        // Hash on our own threads rather than queueing millions of rows on the request pool
+        this.hashingEncoder = passwordEncoder instanceof BoundedPasswordEncoder bounded
+                ? bounded.delegate()
+                : passwordEncoder;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Imports a file, resuming after its checkpoint if there is one.
+     * @param file the NDJSON or CSV file
+     * @return counts for this run
+     * @throws IOException if the file, the report or the checkpoint cannot be accessed
+     */
+    public UserImportResult importUsers(Path file) throws IOException {
+        Path reportFile = properties.getReportFile() != null
+                ? properties.getReportFile()
+                : file.resolveSibling(file.getFileName() + ".errors.csv");
+        Path checkpointFile = properties.getCheckpointFile() != null
+                ? properties.getCheckpointFile()
+                : file.resolveSibling(file.getFileName() + ".checkpoint");
+        long resumeAfter = readCheckpoint(checkpointFile);
+        if (resumeAfter > 0) {
+            log.info("Resuming import of {} after line {}", file, resumeAfter);
+        }
+
+        Run run = new Run(checkpointFile);
+        try (UserImportReader reader = new UserImportReader(file, objectMapper);
+             BufferedWriter report = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             ExecutorService hashingPool = Executors.newFixedThreadPool(properties.effectiveHashingThreads(),
+                     Thread.ofPlatform().name("import-hashing-", 1).daemon(true).factory())) {
+            run.report = report;
+            run.hashingPool = hashingPool;
+
+            List<UserImportReader.Line> batch = new ArrayList<>(properties.getBatchSize());
+            UserImportReader.Line line;
+            while ((line = reader.next()) != null) {
+                run.lastLine = line.number();
+                if (line.number() <= resumeAfter) {
+                    continue;
+                }
+                if (line.error() != null) {
+                    run.reject(line.number(), null, line.error());
+                    continue;
+                }
+                batch.add(line);
+                if (batch.size() == properties.getBatchSize()) {
+                    importBatch(run, batch);
+                    batch.clear();
+                }
+            }
+            importBatch(run, batch);
+            writeCheckpoint(checkpointFile, run.lastLine);
+            run.writeRejections();
+        }
+        return new UserImportResult(run.imported, run.rejected, resumeAfter, run.lastLine);
+    }
+
+    private void importBatch(Run run, List<UserImportReader.Line> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Candidate> candidates = validate(run, batch);
+        rejectExisting(run, candidates);
+        hash(candidates, run.hashingPool);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(candidates));
+            run.imported += candidates.size();
+        } catch (DataIntegrityViolationException e) {
+            // Someone registered one of these emails meanwhile; find out which, row by row
+            for (Candidate candidate : candidates) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(candidate)));
+                    run.imported++;
+                } catch (DataIntegrityViolationException rowFailure) {
+                    run.reject(candidate.line(), candidate.email(), "Email already in use");
+                }
+            }
+        }
+
+        writeCheckpoint(run.checkpointFile, batch.getLast().number());
+        run.writeRejections();
+        log.debug("Imported up to line {} ({} so far)", batch.getLast().number(), run.imported);
+    }
+
+    private List<Candidate> validate(Run run, List<UserImportReader.Line> batch) {
+        List<Candidate> candidates = new ArrayList<>(batch.size());
+        Set<String> emails = new HashSet<>();
+        for (UserImportReader.Line line : batch) {
+            UserImportRow row = line.row();
+            String problem = validate(row);
+            String email = EmailAddresses.normalize(row.getEmail());
+            if (problem == null && !emails.add(email)) {
+                problem = "Email appears more than once in this batch";
+            }
+            if (problem != null) {
+                run.reject(line.number(), row.getEmail(), problem);
+            } else {
+                candidates.add(new Candidate(line.number(), email, row));
+            }
+        }
+        return candidates;
+    }
+
+    private String validate(UserImportRow row) {
+        boolean hasPassword = row.getPassword() != null;
+        boolean hasHash = row.getPasswordHash() != null;
+        if (hasPassword == hasHash) {
+            return "Exactly one of password and password_hash is required";
+        }
+        if (hasHash && !BCRYPT_HASH.matcher(row.getPasswordHash()).matches()) {
+            return "password_hash is not a BCrypt hash";
+        }
+
+        // Same rules as the registration endpoint; a pre-hashed row only has its email checked
+        RegistrationRequest request = new RegistrationRequest();
+        request.setEmail(row.getEmail());
+        request.setPassword(row.getPassword());
+        Set<ConstraintViolation<RegistrationRequest>> violations = hasHash
+                ? validator.validateProperty(request, "email")
+                : validator.validate(request);
+        return violations.isEmpty()
+                ? null
+                : violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+    }
+
+    private void rejectExisting(Run run, List<Candidate> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Set<String> existing = new HashSet<>(userRepository.findExistingEmails(
+                candidates.stream().map(Candidate::email).toList()));
+        if (existing.isEmpty()) {
+            return;
+        }
+        for (Candidate candidate : candidates) {
+            if (existing.contains(candidate.email())) {
+                run.reject(candidate.line(), candidate.email(), "Email already in use");
+            }
+        }
+        candidates.removeIf(candidate -> existing.contains(candidate.email()));
+    }
+
+    private void hash(List<Candidate> candidates, ExecutorService hashingPool) {
+        List<CompletableFuture<Void>> hashes = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            if (candidate.row().getPasswordHash() != null) {
+                candidate.hash = candidate.row().getPasswordHash();
+            } else {
+                hashes.add(CompletableFuture.runAsync(
+                        () -> candidate.hash = hashingEncoder.encode(candidate.row().getPassword()), hashingPool));
+            }
+        }
+        CompletableFuture.allOf(hashes.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void insert(List<Candidate> candidates) {
+        for (Candidate candidate : candidates) {
+            User user = new User();
+            user.setEmail(candidate.email());
+            user.setPassword(candidate.hash);
+            user.setEnabled(candidate.row().isEnabled());
+            entityManager.persist(user);
+            if (properties.isSendVerification() && !user.isEnabled()) {
+                userService.issueVerification(user);
+            }
+        }
+        // Sends the batched inserts, then detaches them so memory stays flat
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static long readCheckpoint(Path checkpointFile) throws IOException {
+        return Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).strip()) : 0;
+    }
+
+    private static void writeCheckpoint(Path checkpointFile, long line) throws IOException {
+        Path partial = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".partial");
+        Files.writeString(partial, Long.toString(line));
+        Files.move(partial, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Candidate {
+
+        private final long line;
+        private final String email;
+        private final UserImportRow row;
+        private volatile String hash;
+
+        private Candidate(long line, String email, UserImportRow row) {
+            this.line = line;
+            this.email = email;
+            this.row = row;
+        }
+
+        long line() {
+            return line;
+        }
+
+        String email() {
+            return email;
+        }
+
+        UserImportRow row() {
+            return row;
+        }
+    }
+
+    private static final class Run {
+
+        private final Path checkpointFile;
+        private BufferedWriter report;
+        /** Report lines for the batch in progress, written once its checkpoint is. */
+        private final List<String> rejections = new ArrayList<>();
+        private ExecutorService hashingPool;
+        private long imported;
+        private long rejected;
+        private long lastLine;
+
+        private Run(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+        }
+
+        private void reject(long line, String email, String reason) {
+            rejections.add(line + "," + csv(email) + "," + csv(reason));
+            rejected++;
+        }
+
+        private void writeRejections() throws IOException {
+            for (String rejection : rejections) {
+                report.write(rejection);
+                report.newLine();
+            }
+            report.flush();
+            rejections.clear();
+        }
+
+        private static String csv(String value) {
+            return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
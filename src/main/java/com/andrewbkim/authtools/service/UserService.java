@@ -1,93 +1,159 @@
 package com.andrewbkim.authtools.service;
 
+import com.andrewbkim.authtools.audit.AuditEvent;
+import com.andrewbkim.authtools.audit.AuditLog;
+import com.andrewbkim.authtools.entity.MailOutboxMessage;
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.andrewbkim.authtools.repository.MailOutboxRepository;
 import com.andrewbkim.authtools.repository.UserRepository;
 import com.andrewbkim.authtools.dto.RegistrationRequest;
-import com.andrewbkim.authtools.entity.VerificationToken;
-import com.andrewbkim.authtools.repository.VerificationTokenRepository;
 import com.andrewbkim.authtools.exception.RegistrationException;
 import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.util.EmailAddresses;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Optional;
+
+import static com.andrewbkim.authtools.audit.AuditEvent.Type.*;
+import static com.andrewbkim.authtools.metrics.AuthMetrics.Phase.*;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final String EMAIL_UNIQUE_INDEX = "uk_app_user_email";
+
     private final UserRepository userRepository;
-    private final VerificationTokenRepository tokenRepository;
+    private final VerificationTokenStrategy tokenStrategy;
     private final PasswordEncoder passwordEncoder;
-    private final JavaMailSender mailSender;
+    private final MailOutboxRepository outboxRepository;
+    private final RegisteredEmailFilter emailFilter;
+    private final AuditLog auditLog;
+    private final AuthMetrics metrics;
 
     @Transactional
     public void registerUser(RegistrationRequest request) {
-        userRepository.findByEmail(request.getEmail()).ifPresent(user -> {
-            throw new RegistrationException("Email already in use", HttpStatus.CONFLICT);
-        });
-
         User user = new User();
-        user.setEmail(request.getEmail());
+        user.setEmail(EmailAddresses.normalize(request.getEmail()));
+        long start;
+        // Only an email the filter may have seen is looked up, to skip hashing for a likely duplicate
+        if (emailFilter.check(user.getEmail()) == RegisteredEmailFilter.Answer.MAYBE) {
+            start = System.nanoTime();
+            boolean exists = userRepository.existsByEmail(user.getEmail());
+            metrics.record(EMAIL_LOOKUP, start);
+            if (exists) {
+                throw rejected(REGISTER, user.getEmail(), null, RegistrationException.EMAIL_IN_USE);
+            }
+            emailFilter.recordFalsePositive();
+        }
+
+        start = System.nanoTime();
         user.setPassword(passwordEncoder.encode(request.getPassword()));
-        userRepository.save(user);
+        metrics.record(PASSWORD_HASH, start);
+
+        // The unique index on email still decides, including for concurrent duplicates
+        start = System.nanoTime();
+        try {
+            userRepository.saveAndFlush(user);
+            emailFilter.add(user.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw rejected(REGISTER, user.getEmail(), null, RegistrationException.EMAIL_IN_USE);
+            }
+            throw e;
+        } finally {
+            metrics.record(USER_SAVE, start);
+        }
+
+        String token = issueVerification(user);
+        auditLog.recordAfterCommit(REGISTER, user.getEmail(), token);
+    }
 
-        sendVerificationToken(user);
+    /**
+     * Issues a verification token for a freshly saved user and queues the email carrying it.
+     * Must run inside the transaction that saved the user.
+     * @param user the saved, not yet enabled user
+     * @return the issued token
+     */
+    String issueVerification(User user) {
+        long start = System.nanoTime();
+        String token = tokenStrategy.issue(user);
+        metrics.record(TOKEN_SAVE, start);
+
+        sendVerificationToken(user, token);
+        return token;
     }
 
     @Transactional
     public void confirmToken(String token) {
-        VerificationToken verificationToken = tokenRepository.findByToken(token)
-                .orElseThrow(() -> new RegistrationException("Invalid verification token", HttpStatus.BAD_REQUEST));
-
-        if (verificationToken.getExpiryDate().isBefore(LocalDateTime.now())) {
-            throw new RegistrationException("Verification token has expired", HttpStatus.BAD_REQUEST);
+        long start = System.nanoTime();
+        try {
+            tokenStrategy.confirm(token);
+        } catch (RegistrationException e) {
+            throw rejected(CONFIRM, null, token, e);
+        } finally {
+            metrics.record(TOKEN_CONFIRM, start);
         }
-
-        User user = verificationToken.getUser();
-        if (user.isEnabled()) {
-            throw new RegistrationException("Account is already verified", HttpStatus.BAD_REQUEST);
-        }
-
-        user.setEnabled(true);
-        userRepository.save(user);
-
-        tokenRepository.delete(verificationToken);
+        auditLog.recordAfterCommit(CONFIRM, null, token);
     }
 
     @Transactional
     public void resendVerificationToken(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RegistrationException("User not found with this email", HttpStatus.NOT_FOUND));
+        String normalized = EmailAddresses.normalize(email);
+        // Asked only to count false positives: "absent" can miss a registration made on another
+        // node since the last refresh, so the database has the final word on NOT_FOUND
+        RegisteredEmailFilter.Answer answer = emailFilter.check(normalized);
+
+        long start = System.nanoTime();
+        Optional<User> found = userRepository.findByEmail(normalized);
+        metrics.record(EMAIL_LOOKUP, start);
+        if (found.isEmpty() && answer == RegisteredEmailFilter.Answer.MAYBE) {
+            emailFilter.recordFalsePositive();
+        }
+        User user = found.orElseThrow(() -> rejected(RESEND, normalized, null, RegistrationException.USER_NOT_FOUND));
 
         if (user.isEnabled()) {
-            throw new RegistrationException("Account is already verified", HttpStatus.BAD_REQUEST);
+            throw rejected(RESEND, normalized, null, RegistrationException.ALREADY_VERIFIED);
         }
 
-        // Find existing token and delete it before creating a new one
-        tokenRepository.findByUser(user).ifPresent(tokenRepository::delete);
+        start = System.nanoTime();
+        String token = tokenStrategy.reissue(user);
+        metrics.record(TOKEN_SAVE, start);
 
-        sendVerificationToken(user);
+        sendVerificationToken(user, token);
+        auditLog.recordAfterCommit(RESEND, normalized, token);
     }
 
-    private void sendVerificationToken(User user) {
-        String token = UUID.randomUUID().toString();
-        VerificationToken verificationToken = new VerificationToken(token, user);
-        tokenRepository.save(verificationToken);
+    /**
+     * Audits a rejection on its way to the client.
+     * @return the rejection, for the caller to throw
+     */
+    private RegistrationException rejected(AuditEvent.Type type, String email, String token, RegistrationException e) {
+        auditLog.record(type, AuditEvent.Outcome.REJECTED, email, token, e.getMessage());
+        return e;
+    }
 
+    private void sendVerificationToken(User user, String token) {
+        // Queued in the same transaction; MailOutboxDispatcher delivers it after commit
+        long start = System.nanoTime();
         String confirmationUrl = "http://localhost:8080/register/confirm?token=" + token;
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Confirm your registration");
-        message.setText("Thank you for registering. Please click the link below to activate your account:\n" + confirmationUrl + "\nThis link will expire in 15 minutes.");
-
-        mailSender.send(message);
+        outboxRepository.save(new MailOutboxMessage(
+                user.getEmail(),
+                "Confirm your registration",
+                "Thank you for registering. Please click the link below to activate your account:\n" + confirmationUrl + "\nThis link will expire in 15 minutes."
+        ));
+        metrics.record(MAIL_ENQUEUE, start);
     }
 
-
+    private static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(EMAIL_UNIQUE_INDEX);
+    }
 }
@@ -0,0 +1,126 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.ReaperProperties;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.repository.VerificationTokenRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Periodically purges verification tokens that expired long ago and accounts that were never
+ * verified. Rows are removed in keyset-ordered chunks with bulk DELETEs, one short
+ * transaction per chunk, and each run stops once its time budget is spent. Only the node
+ * holding the reaper's job lease runs; the lease is renewed after every chunk.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth-tools.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class VerificationReaper {
+
+    static final String JOB = "verification-reaper";
+
+    private final VerificationTokenRepository tokenRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeases leases;
+    private final ReaperProperties properties;
+    private final DistributionSummary tokensPurged;
+    private final DistributionSummary usersPurged;
+
+    public VerificationReaper(VerificationTokenRepository tokenRepository, UserRepository userRepository,
+                              TransactionTemplate transactionTemplate, JobLeases leases,
+                              ReaperProperties properties, MeterRegistry meterRegistry) {
+        this.tokenRepository = tokenRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.leases = leases;
+        this.properties = properties;
+        this.tokensPurged = DistributionSummary.builder("auth.reaper.purged")
+                .description("Rows purged per reaper run")
+                .tag("type", "token")
+                .register(meterRegistry);
+        this.usersPurged = DistributionSummary.builder("auth.reaper.purged")
+                .description("Rows purged per reaper run")
+                .tag("type", "user")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${auth-tools.reaper.interval:PT10M}", initialDelayString = "${auth-tools.reaper.initial-delay:PT1M}")
+    public void reap() {
+        if (!leases.tryAcquire(JOB, properties.getLeaseDuration())) {
+            log.debug("Reaper lease is held by another node, skipping this run");
+            return;
+        }
+
+        long deadline = System.nanoTime() + properties.getTimeBudget().toNanos();
+        LocalDateTime now = LocalDateTime.now();
+        int tokens;
+        int users;
+        try {
+            tokens = purgeExpiredTokens(now.minus(properties.getTokenRetention()), deadline);
+            users = purgeUnverifiedUsers(now.minus(properties.getUnverifiedUserRetention()), deadline);
+        } finally {
+            leases.release(JOB);
+        }
+
+        tokensPurged.record(tokens);
+        usersPurged.record(users);
+        if (tokens > 0 || users > 0) {
+            log.info("Reaper purged {} expired tokens and {} unverified users", tokens, users);
+        }
+    }
+
+    /**
+     * Whether to go on with another chunk: the last one was full, there is time left and
+     * this node still holds the lease.
+     */
+    private boolean hasMore(List<Long> chunk, long deadline) {
+        return chunk.size() == properties.getChunkSize()
+                && System.nanoTime() < deadline
+                && leases.tryAcquire(JOB, properties.getLeaseDuration());
+    }
+
+    int purgeExpiredTokens(LocalDateTime cutoff, long deadline) {
+        int purged = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = tokenRepository.findExpiredIds(cutoff, afterId, Limit.of(properties.getChunkSize()));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Long> chunk = ids;
+            purged += transactionTemplate.execute(status -> tokenRepository.deleteByIdIn(chunk));
+            afterId = ids.getLast();
+        } while (hasMore(ids, deadline));
+        return purged;
+    }
+
+    int purgeUnverifiedUsers(LocalDateTime cutoff, long deadline) {
+        int purged = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = userRepository.findUnverifiedIdsCreatedBefore(cutoff, afterId, Limit.of(properties.getChunkSize()));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Long> chunk = ids;
+            purged += transactionTemplate.execute(status -> {
+                tokenRepository.deleteByUserIdIn(chunk);
+                return userRepository.deleteUnverifiedByIdIn(chunk);
+            });
+            afterId = ids.getLast();
+        } while (hasMore(ids, deadline));
+        return purged;
+    }
+}
@@ -0,0 +1,32 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.entity.User;
+
+/**
+ * Issues and confirms email verification tokens. The implementation is selected with
+ * {@code auth-tools.token.mode}.
+ */
+public interface VerificationTokenStrategy {
+
+    /**
+     * Issues the first token for a freshly registered user.
+     * @param user the saved, not yet enabled user
+     * @return the token to put in the confirmation link
+     */
+    String issue(User user);
+
+    /**
+     * Issues a replacement token for a user who asked for a new verification email.
+     * @param user the not yet enabled user
+     * @return the token to put in the confirmation link
+     */
+    String reissue(User user);
+
+    /**
+     * Validates the token and enables the account it belongs to.
+     * @param token the token from the confirmation link
+     * @throws com.andrewbkim.authtools.exception.RegistrationException if the token is
+     * invalid or expired, or the account is already verified
+     */
+    void confirm(String token);
+}
@@ -0,0 +1,22 @@
+package com.andrewbkim.authtools.util;
+
+import java.util.Locale;
+
+/**
+ * Helpers for handling email addresses consistently across the application.
+ */
+public final class EmailAddresses {
+
+    private EmailAddresses() {
+    }
+
+    /**
+     * Returns the canonical form used for storage, lookups and uniqueness: trimmed and
+     * lower-cased.
+     * @param email the address as entered by the user
+     * @return the normalized address, or {@code null} if the input is {@code null}
+     */
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,36 @@
+-- Baseline schema. Emails are stored normalized (trimmed, lower-cased) by the application,
+-- so a plain unique index is enough to reject duplicates regardless of case.
+
+CREATE TABLE app_user (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    enabled  BOOLEAN      NOT NULL DEFAULT FALSE
+);
+
+CREATE UNIQUE INDEX uk_app_user_email ON app_user (email);
+
+CREATE TABLE verification_token (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token       VARCHAR(255) NOT NULL,
+    expiry_date TIMESTAMP(6) NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    CONSTRAINT fk_verification_token_user FOREIGN KEY (user_id) REFERENCES app_user (id)
+);
+
+CREATE UNIQUE INDEX uk_verification_token_token ON verification_token (token);
+CREATE UNIQUE INDEX uk_verification_token_user ON verification_token (user_id);
+
+CREATE TABLE mail_outbox (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    recipient       VARCHAR(255)  NOT NULL,
+    subject         VARCHAR(255)  NOT NULL,
+    body            VARCHAR(4000) NOT NULL,
+    status          VARCHAR(16)   NOT NULL,
+    attempts        INTEGER       NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    last_error      VARCHAR(1000),
+    created_at      TIMESTAMP(6)  NOT NULL
+);
+
+CREATE INDEX ix_mail_outbox_due ON mail_outbox (status, next_attempt_at, id);
@@ -0,0 +1,6 @@
+-- Needed to find unverified accounts that were abandoned, and tokens that expired long ago.
+
+ALTER TABLE app_user ADD COLUMN created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX ix_app_user_unverified ON app_user (enabled, created_at, id);
+CREATE INDEX ix_verification_token_expiry ON verification_token (expiry_date, id);
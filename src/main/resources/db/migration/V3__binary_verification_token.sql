@@ -0,0 +1,11 @@
+-- Tokens become raw random bytes (128 or 256 bits) instead of 36-char UUID strings.
+-- Outstanding tokens are short-lived and cannot be converted, so they are dropped;
+-- affected users can request a new verification email.
+
+DELETE FROM verification_token;
+
+DROP INDEX uk_verification_token_token;
+ALTER TABLE verification_token DROP COLUMN token;
+ALTER TABLE verification_token ADD COLUMN token VARBINARY(32) NOT NULL;
+
+CREATE UNIQUE INDEX uk_verification_token_token ON verification_token (token);
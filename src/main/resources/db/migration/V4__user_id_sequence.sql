@@ -0,0 +1,7 @@
+-- User ids come from a sequence instead of the identity column, so Hibernate can allocate
+-- them in blocks of 50 (pooled-lo) and batch user inserts. The identity default stays in
+-- place but is no longer used. The sequence starts past any existing id.
+
+CREATE SEQUENCE app_user_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE app_user_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM app_user);
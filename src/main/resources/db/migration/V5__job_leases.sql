@@ -0,0 +1,14 @@
+-- Outbox rows are claimed by a dispatcher before sending: the claim stamps a per-batch token and
+-- pushes next_attempt_at out by the claim timeout, so rows claimed by a node that dies become due again.
+ALTER TABLE mail_outbox ADD COLUMN claim_token VARCHAR(36);
+
+CREATE INDEX ix_mail_outbox_claim ON mail_outbox (claim_token);
+
+-- Jobs that must run on one node at a time hold a row here until lease_until.
+CREATE TABLE job_lease (
+    name        VARCHAR(64)  PRIMARY KEY,
+    owner       VARCHAR(128),
+    lease_until TIMESTAMP(6) NOT NULL
+);
+
+INSERT INTO job_lease (name, owner, lease_until) VALUES ('verification-reaper', NULL, TIMESTAMP '1970-01-01 00:00:00');
@@ -0,0 +1,12 @@
+-- Responses to registration requests carrying an Idempotency-Key, replayed to retries of the same
+-- request. A row with a NULL status is a request still being processed.
+CREATE TABLE idempotency_record (
+    idempotency_key VARCHAR(320)  PRIMARY KEY,
+    fingerprint     VARCHAR(64)   NOT NULL,
+    status          INTEGER,
+    content_type    VARCHAR(255),
+    body            VARCHAR(4000),
+    expires_at      TIMESTAMP(6)  NOT NULL
+);
+
+CREATE INDEX ix_idempotency_record_expires ON idempotency_record (expires_at);
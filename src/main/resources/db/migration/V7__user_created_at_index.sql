@@ -0,0 +1,2 @@
+-- Lets each node pick up recent registrations from the other nodes into its in-memory email filter.
+CREATE INDEX ix_app_user_created_at ON app_user (created_at);
@@ -0,0 +1,4 @@
+-- What an account may do beyond logging in. Every account is a USER; operators are promoted by
+-- hand, e.g. UPDATE app_user SET role = 'ADMIN' WHERE email = 'ops@example.com', and get
+-- ROLE_ADMIN, which the lockout endpoint requires, from their next login on.
+ALTER TABLE app_user ADD COLUMN role VARCHAR(16) NOT NULL DEFAULT 'USER';
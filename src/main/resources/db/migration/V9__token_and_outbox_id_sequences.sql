@@ -0,0 +1,11 @@
+-- Verification tokens and outbox messages get their ids from sequences too (see V4), so a bulk
+-- import that sends verification mail can batch their inserts along with the users'. The identity
+-- defaults stay in place but are no longer used. Each sequence starts past any existing id.
+
+CREATE SEQUENCE verification_token_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE verification_token_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM verification_token);
+
+CREATE SEQUENCE mail_outbox_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE mail_outbox_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM mail_outbox);
@@ -0,0 +1,254 @@
+package com.andrewbkim.authtools.audit;
+
+import com.andrewbkim.authtools.config.AuditProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.andrewbkim.authtools.audit.AuditEvent.Outcome.*;
+import static com.andrewbkim.authtools.audit.AuditEvent.Type.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AuditLog class, read back through AuditLogReader.
+ */
+@DisplayName("Audit Log Tests")
+public class AuditLogTest {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    private Path directory;
+
+    private AuditProperties properties;
+    private SimpleMeterRegistry registry;
+    private TestClock clock;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AuditProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(DataSize.ofKilobytes(64));
+        registry = new SimpleMeterRegistry();
+        clock = new TestClock();
+    }
+
+    @Test
+    @DisplayName("Should write events in order and read them back without tokens")
+    void record_shouldBeReadBackInOrder() throws IOException {
+        // Given: A registration and its confirmation
+        AuditLog auditLog = start();
+        auditLog.recordAfterCommit(REGISTER, "alice@example.com", "token-1");
+        auditLog.recordAfterCommit(CONFIRM, null, "token-1");
+        auditLog.stop();
+
+        // When: The log is read back
+        List<AuditEvent> events = new ArrayList<>();
+        AuditLogReader.Result result = AuditLogReader.read(directory, AuditLogReader.Query.all(), events::add);
+
+        // Then: Both events are there in order, tied together by the token hash
+        assertTrue(result.intact(), result.problems()::toString);
+        assertEquals(2, events.size());
+        assertEquals(new AuditEvent(0, START, REGISTER, SUCCESS, "alice@example.com", events.get(0).tokenHash(), null),
+                events.get(0));
+        assertEquals(CONFIRM, events.get(1).type());
+        assertEquals(1, events.get(1).sequence());
+        assertEquals(events.get(0).tokenHash(), events.get(1).tokenHash());
+        assertEquals(32, events.get(0).tokenHash().length());
+
+        // Then: The token itself is not in the files
+        for (Path file : AuditSegment.list(directory)) {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+            assertFalse(content.contains("token-1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should find an email's events, including confirmations of its tokens")
+    void read_byEmail_shouldIncludeConfirmationsOfItsTokens() throws IOException {
+        // Given: Two users register and confirm, and one confirmation is rejected
+        AuditLog auditLog = start();
+        auditLog.recordAfterCommit(REGISTER, "alice@example.com", "token-a");
+        auditLog.recordAfterCommit(REGISTER, "bob@example.com", "token-b");
+        auditLog.recordAfterCommit(CONFIRM, null, "token-b");
+        auditLog.record(CONFIRM, REJECTED, null, "token-x", "Invalid verification token");
+        auditLog.recordAfterCommit(CONFIRM, null, "token-a");
+        auditLog.stop();
+
+        // When: Alice's events are queried, with the email typed differently
+        List<AuditEvent> events = new ArrayList<>();
+        AuditLogReader.Result result = AuditLogReader.read(directory,
+                new AuditLogReader.Query(" Alice@Example.com", null, null), events::add);
+
+        // Then: Her registration and her confirmation match
+        assertEquals(5, result.records());
+        assertEquals(2, result.matched());
+        assertEquals(List.of(0L, 4L), events.stream().map(AuditEvent::sequence).toList());
+    }
+
+    @Test
+    @DisplayName("Should find events in a time range")
+    void read_byTimeRange_shouldReturnEventsInRange() throws IOException {
+        // Given: One event a minute
+        AuditLog auditLog = start();
+        for (int i = 0; i < 5; i++) {
+            auditLog.record(RESEND, REJECTED, "user" + i + "@example.com", null, "User not found with this email");
+            clock.advance(60_000);
+        }
+        auditLog.stop();
+
+        // When: Minutes 1 and 2 are queried
+        List<AuditEvent> events = new ArrayList<>();
+        AuditLogReader.read(directory, new AuditLogReader.Query(null,
+                START.plusSeconds(60), START.plusSeconds(180)), events::add);
+
+        // Then: The range includes its start but not its end
+        assertEquals(List.of(1L, 2L), events.stream().map(AuditEvent::sequence).toList());
+    }
+
+    @Test
+    @DisplayName("Should continue the chain across restarts and full segments")
+    void record_acrossRestartsAndRolls_shouldKeepChainIntact() throws IOException {
+        // Given: Enough events to fill several small segments, written over two runs
+        properties.setSegmentSize(DataSize.ofKilobytes(8));
+        for (int run = 0; run < 2; run++) {
+            AuditLog auditLog = start();
+            for (int i = 0; i < 200; i++) {
+                auditLog.record(REGISTER, REJECTED, "user" + i + "@example.com", null, "Email already in use");
+            }
+            auditLog.stop();
+        }
+
+        // When: The log is read back
+        List<AuditEvent> events = new ArrayList<>();
+        AuditLogReader.Result result = AuditLogReader.read(directory, AuditLogReader.Query.all(), events::add);
+
+        // Then: Every event is there once, in order, across several segments
+        assertTrue(result.intact(), result.problems()::toString);
+        assertEquals(400, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).sequence());
+        }
+        assertTrue(AuditSegment.list(directory).size() > 2);
+    }
+
+    @Test
+    @DisplayName("Should roll to a new segment when the current one gets old")
+    void record_afterRollInterval_shouldStartNewSegment() throws IOException {
+        // Given: Events on either side of the roll interval
+        AuditLog auditLog = start();
+        auditLog.record(RESEND, SUCCESS, "alice@example.com", "token-1", null);
+        clock.advance(properties.getRollInterval().toMillis());
+        auditLog.record(RESEND, SUCCESS, "alice@example.com", "token-2", null);
+        auditLog.stop();
+
+        // Then: Each is in its own segment and the chain holds
+        assertEquals(2, AuditSegment.list(directory).size());
+        assertTrue(AuditLogReader.read(directory, AuditLogReader.Query.all(), event -> { }).intact());
+    }
+
+    @Test
+    @DisplayName("Should report a record that was changed after it was written")
+    void read_afterTampering_shouldReportBrokenChain() throws IOException {
+        // Given: A written log in which one email is then altered
+        AuditLog auditLog = start();
+        auditLog.recordAfterCommit(REGISTER, "alice@example.com", "token-a");
+        auditLog.recordAfterCommit(REGISTER, "bob@example.com", "token-b");
+        auditLog.stop();
+        Path segment = AuditSegment.list(directory).getFirst();
+        byte[] bytes = Files.readAllBytes(segment);
+        String content = new String(bytes, StandardCharsets.ISO_8859_1);
+        bytes[content.indexOf("alice@example.com")] = 'm';
+        Files.write(segment, bytes);
+
+        // When: The log is read back
+        AuditLogReader.Result result = AuditLogReader.read(directory, AuditLogReader.Query.all(), event -> { });
+
+        // Then: The chain is reported broken at the altered record
+        assertFalse(result.intact());
+        assertEquals(0, result.records());
+        assertTrue(result.problems().getFirst().contains("hash mismatch"), result.problems()::toString);
+    }
+
+    @Test
+    @DisplayName("Should drop and count events rather than block when the buffer is full")
+    void record_whenBufferIsFull_shouldDropWithoutBlocking() {
+        // Given: A tiny buffer and no writer draining it
+        properties.setBufferSize(4);
+        AuditLog auditLog = new AuditLog(properties, registry, clock);
+
+        // When: More events arrive than fit
+        for (int i = 0; i < 10; i++) {
+            auditLog.record(CONFIRM, REJECTED, null, "token-" + i, "Invalid verification token");
+        }
+
+        // Then: The overflow is dropped and counted
+        assertEquals(4, registry.get("auth.audit.events").tag("result", "published").counter().count());
+        assertEquals(6, registry.get("auth.audit.events").tag("result", "dropped").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should refuse a second writer on the same directory")
+    void start_whenDirectoryIsInUse_shouldFail() {
+        // Given: A running audit log
+        AuditLog first = start();
+        try {
+            // When & Then: Another one on the same directory does not start
+            AuditLog second = new AuditLog(properties, new SimpleMeterRegistry(), clock);
+            assertThrows(UncheckedIOException.class, second::start);
+        } finally {
+            first.stop();
+        }
+    }
+
+    private AuditLog start() {
+        AuditLog auditLog = new AuditLog(properties, registry, clock);
+        auditLog.start();
+        return auditLog;
+    }
+
+    /** A clock the test moves by hand. */
+    private static class TestClock extends Clock {
+        private final AtomicLong millis = new AtomicLong(START.toEpochMilli());
+
+        void advance(long delta) {
+            millis.addAndGet(delta);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.andrewbkim.authtools.config;
+
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for the actuator filter chain: HTTP Basic for the scraper and admins, open health,
+ * and no way in for ordinary accounts.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:actuator-security;DB_CLOSE_DELAY=-1",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "auth-tools.hashing.calibrate=false",
+        "auth-tools.audit.enabled=false",
+        "auth-tools.actuator.scraper.username=prometheus",
+        "auth-tools.actuator.scraper.password={noop}scrape-secret"
+})
+@AutoConfigureMockMvc
+@DisplayName("Actuator Security Tests")
+public class ActuatorSecurityTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("member@example.com");
+        user.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+        user.setEnabled(true);
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Should answer health without credentials")
+    void health_shouldBeOpen() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should challenge an anonymous scrape with 401 instead of redirecting to the login form")
+    void metrics_whenAnonymous_shouldChallenge() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().exists(HttpHeaders.WWW_AUTHENTICATE));
+    }
+
+    @Test
+    @DisplayName("Should let the configured scraper read metrics over HTTP Basic")
+    void metrics_whenScraper_shouldBeReadable() throws Exception {
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic("prometheus", "scrape-secret")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic("prometheus", "wrong")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("Should keep the scraper out of lockouts and ordinary accounts out of metrics")
+    void actuator_whenNotEntitled_shouldBeForbidden() throws Exception {
+        mockMvc.perform(get("/actuator/lockouts").with(httpBasic("prometheus", "scrape-secret")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic("member@example.com", PASSWORD)))
+                .andExpect(status().isForbidden());
+    }
+}
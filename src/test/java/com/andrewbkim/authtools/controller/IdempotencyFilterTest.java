@@ -0,0 +1,263 @@
+package com.andrewbkim.authtools.controller;
+
+import com.andrewbkim.authtools.config.IdempotencyProperties;
+import com.andrewbkim.authtools.service.InMemoryIdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the IdempotencyFilter class.
+ */
+@DisplayName("Idempotency Filter Tests")
+public class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"email\":\"test@example.com\",\"password\":\"password123\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger invocations = new AtomicInteger();
+    private IdempotencyProperties properties;
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdempotencyProperties();
+        properties.setWaitTimeout(Duration.ofSeconds(5));
+        filter = new IdempotencyFilter(new InMemoryIdempotencyStore(properties), properties, new ObjectMapper(),
+                meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should replay the original response to a retry without running the request again")
+    void retry_shouldReplayStoredResponse() throws Exception {
+        // Given: A registration that succeeded
+        MockHttpServletResponse first = perform(request("key-1", BODY), respondWith(201, "{\"message\":\"ok\"}"));
+
+        // When: The client retries with the same key and body
+        MockHttpServletResponse retry = perform(request("key-1", BODY), respondWith(201, "{\"message\":\"ok\"}"));
+
+        // Then: The controller ran once and the retry got the same response, marked as replayed
+        assertEquals(1, invocations.get());
+        assertEquals(201, first.getStatus());
+        assertEquals(201, retry.getStatus());
+        assertEquals("{\"message\":\"ok\"}", retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    @DisplayName("Should replay client errors such as a 409 too")
+    void retry_afterConflict_shouldReplayConflict() throws Exception {
+        // Given: The first attempt was refused as a duplicate registration
+        perform(request("key-1", BODY), respondWith(409, "{\"error\":\"taken\"}"));
+
+        // When: The client retries
+        MockHttpServletResponse retry = perform(request("key-1", BODY), respondWith(201, "{}"));
+
+        // Then: The original 409 is replayed
+        assertEquals(1, invocations.get());
+        assertEquals(409, retry.getStatus());
+        assertEquals("{\"error\":\"taken\"}", retry.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should run the request again when the first attempt failed with a server error")
+    void retry_afterServerError_shouldRunAgain() throws Exception {
+        // Given: The first attempt failed with a 503
+        perform(request("key-1", BODY), respondWith(503, "{}"));
+
+        // When: The client retries
+        MockHttpServletResponse retry = perform(request("key-1", BODY), respondWith(201, "{}"));
+
+        // Then: The retry ran and succeeded
+        assertEquals(2, invocations.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should refuse a key reused for a different body")
+    void reuse_withDifferentBody_shouldBeRejected() throws Exception {
+        // Given: A key already used for one registration
+        perform(request("key-1", BODY), respondWith(201, "{}"));
+
+        // When: The same key comes with another body
+        MockHttpServletResponse response = perform(request("key-1", BODY.replace("test@", "other@")),
+                respondWith(201, "{}"));
+
+        // Then: It is refused with 422 and nothing runs
+        assertEquals(1, invocations.get());
+        assertEquals(422, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should hand the cached body to a non-blocking reader")
+    void readListener_shouldReceiveCachedBody() throws Exception {
+        // Given: A controller that reads the body asynchronously
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicInteger completions = new AtomicInteger();
+        FilterChain asyncReader = (request, response) -> {
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[16];
+                    int n;
+                    while (in.isReady() && (n = in.read(buffer)) != -1) {
+                        read.write(buffer, 0, n);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    completions.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+            write((HttpServletResponse) response, 201, "{}");
+        };
+
+        // When
+        perform(request("key-1", BODY), asyncReader);
+
+        // Then: The whole body arrived and completion was signalled once
+        assertEquals(BODY, read.toString(StandardCharsets.UTF_8));
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    @DisplayName("Should make a concurrent duplicate wait for the original and replay its response")
+    void duplicate_whileInFlight_shouldWaitForOriginal() throws Exception {
+        // Given: The original request is stuck in the controller
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            invocations.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            write((HttpServletResponse) response, 201, "{\"message\":\"ok\"}");
+        };
+        CompletableFuture<MockHttpServletResponse> original =
+                CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), slow));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // When: A duplicate arrives, and then the original finishes
+        CompletableFuture<MockHttpServletResponse> duplicate =
+                CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), slow));
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then: The controller ran once and both clients got the same response
+        assertEquals(201, original.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replay = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(201, replay.getStatus());
+        assertEquals("true", replay.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    @DisplayName("Should answer 409 when the original request outlasts the wait timeout")
+    void duplicate_whenOriginalTooSlow_shouldTimeOut() throws Exception {
+        // Given: A short wait and an original request that is still running
+        properties.setWaitTimeout(Duration.ofMillis(50));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            write((HttpServletResponse) response, 201, "{}");
+        };
+        CompletableFuture<MockHttpServletResponse> original =
+                CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), slow));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // When: A duplicate arrives
+        MockHttpServletResponse duplicate = perform(request("key-1", BODY), respondWith(201, "{}"));
+        release.countDown();
+
+        // Then: It is told to come back later
+        assertEquals(409, duplicate.getStatus());
+        assertEquals("1", duplicate.getHeader("Retry-After"));
+        assertEquals(201, original.get(5, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should pass requests without a key straight through")
+    void request_withoutKey_shouldNotBeStored() throws Exception {
+        // When: The same request is sent twice without a key
+        perform(request(null, BODY), respondWith(201, "{}"));
+        perform(request(null, BODY), respondWith(201, "{}"));
+
+        // Then: Both ran
+        assertEquals(2, invocations.get());
+    }
+
+    private MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/register/");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        }
+        return request;
+    }
+
+    private FilterChain respondWith(int status, String body) {
+        return (request, response) -> {
+            invocations.incrementAndGet();
+            // The controller must still be able to read the body
+            assertTrue(request.getInputStream().readAllBytes().length > 0);
+            write((HttpServletResponse) response, status, body);
+        };
+    }
+
+    private static void write(HttpServletResponse response, int status, String body) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse performUnchecked(MockHttpServletRequest request, FilterChain chain) {
+        try {
+            return perform(request, chain);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.andrewbkim.authtools.exception;
+
+import com.andrewbkim.authtools.controller.RegistrationController;
+import com.andrewbkim.authtools.dto.RegistrationRequest;
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RestExceptionHandler class.
+ */
+@DisplayName("Rest Exception Handler Tests")
+public class RestExceptionHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RestExceptionHandler handler = new RestExceptionHandler(new AuthMetrics(meterRegistry), objectMapper);
+
+    @Test
+    @DisplayName("Should render a business rejection as a JSON error with its status, reusing the response")
+    void handleRegistrationException_shouldRenderAndReuse() throws Exception {
+        // When: The same rejection is handled twice
+        ResponseEntity<Object> first = handler.handleRegistrationException(RegistrationException.EMAIL_IN_USE);
+        ResponseEntity<Object> second = handler.handleRegistrationException(
+                new RegistrationException("Email already in use", HttpStatus.CONFLICT));
+
+        // Then: Both get the same prebuilt 409 response, and both are counted
+        assertEquals(HttpStatus.CONFLICT, first.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, first.getHeaders().getContentType());
+        assertEquals(Map.of("error", "Email already in use"), json(first));
+        assertSame(first, second);
+        assertEquals(2.0, meterRegistry.get("auth.rejections").tag("status", "409").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not capture a stack trace for business rejections")
+    void registrationException_shouldBeStackless() {
+        assertEquals(0, new RegistrationException("nope", HttpStatus.BAD_REQUEST).getStackTrace().length);
+        assertEquals(0, new RetryLaterException("later", HttpStatus.TOO_MANY_REQUESTS, Duration.ZERO)
+                .getStackTrace().length);
+    }
+
+    @Test
+    @DisplayName("Should render validation errors as a field-to-message JSON object")
+    void handleMethodArgumentNotValid_shouldRenderFieldErrors() throws Exception {
+        // Given: Two invalid fields, one of them reported twice
+        BeanPropertyBindingResult bindingResult =
+                new BeanPropertyBindingResult(new RegistrationRequest(), "registrationRequest");
+        bindingResult.addError(new FieldError("registrationRequest", "email", "must not be blank"));
+        bindingResult.addError(new FieldError("registrationRequest", "password", "too short"));
+        bindingResult.addError(new FieldError("registrationRequest", "email", "must be a \"valid\" email"));
+        MethodArgumentNotValidException ex = new MethodArgumentNotValidException(new MethodParameter(
+                RegistrationController.class.getMethod("register", RegistrationRequest.class), 0), bindingResult);
+
+        // When: The handler renders them
+        ResponseEntity<Object> response =
+                handler.handleMethodArgumentNotValid(ex, new HttpHeaders(), HttpStatus.BAD_REQUEST, null);
+
+        // Then: One escaped message per field, the last one reported
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(Map.of("email", "must be a \"valid\" email", "password", "too short"), json(response));
+    }
+
+    @Test
+    @DisplayName("Should add Retry-After to load-shedding rejections")
+    void handleRetryLaterException_shouldSetRetryAfter() throws Exception {
+        ResponseEntity<Object> response = handler.handleRetryLaterException(
+                new RetryLaterException("Busy", HttpStatus.SERVICE_UNAVAILABLE, Duration.ofMillis(200)));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(Map.of("error", "Busy"), json(response));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> json(ResponseEntity<Object> response) throws Exception {
+        byte[] body = (byte[]) response.getBody();
+        return objectMapper.readValue(new String(body, StandardCharsets.UTF_8), Map.class);
+    }
+}
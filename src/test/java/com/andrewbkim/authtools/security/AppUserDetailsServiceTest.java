@@ -0,0 +1,161 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for form login against app_user: the user details service, the user cache and
+ * the re-hash on login, wired the same way as in SecurityConfig.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("App User Details Service Tests")
+public class AppUserDetailsServiceTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final BCryptPasswordEncoder currentEncoder = new BCryptPasswordEncoder(5);
+    private CaffeineUserCache userCache;
+    private DaoAuthenticationProvider provider;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new CaffeineUserCache(100, Duration.ofMinutes(5));
+        AppUserDetailsService userDetailsService = new AppUserDetailsService(userRepository, userCache);
+        provider = new DaoAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(currentEncoder);
+        provider.setUserCache(userCache);
+        provider.setUserDetailsPasswordService(userDetailsService);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("test@example.com");
+        user.setPassword(currentEncoder.encode(PASSWORD));
+        user.setEnabled(true);
+    }
+
+    @Test
+    @DisplayName("Should authenticate a verified user and serve the next login from cache")
+    void authenticate_whenVerified_shouldCacheUserDetails() {
+        // Given: A verified account
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        // When: The user logs in twice, once with different casing
+        Authentication first = provider.authenticate(login("test@example.com", PASSWORD));
+        Authentication second = provider.authenticate(login("Test@Example.com", PASSWORD));
+
+        // Then: Both succeed with a single query
+        assertTrue(first.isAuthenticated());
+        assertTrue(second.isAuthenticated());
+        verify(userRepository, times(1)).findByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Should serve a returning user from cache after the manager erased the first login's credentials")
+    void authenticate_throughProviderManager_shouldKeepCachedPassword() {
+        // Given: A verified account, authenticated the way the filter chains do it
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        ProviderManager manager = new ProviderManager(provider);
+
+        // When: The user logs in twice
+        Authentication first = manager.authenticate(login("test@example.com", PASSWORD));
+        Authentication second = manager.authenticate(login("test@example.com", PASSWORD));
+
+        // Then: The second login is checked against the cached hash, without a query
+        assertTrue(first.isAuthenticated());
+        assertTrue(second.isAuthenticated());
+        assertNull(((UserDetails) first.getPrincipal()).getPassword());
+        verify(userRepository, times(1)).findByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Should reject and never cache an unverified account")
+    void authenticate_whenNotVerified_shouldRejectWithoutCaching() {
+        // Given: An account that has not confirmed its email
+        user.setEnabled(false);
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        // When & Then: Login is refused and nothing is cached
+        assertThrows(DisabledException.class, () -> provider.authenticate(login("test@example.com", PASSWORD)));
+        assertNull(userCache.getUserFromCache("test@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should re-hash the password when the stored BCrypt cost is below the current one")
+    void authenticate_whenHashCostIsLow_shouldUpgradeHash() {
+        // Given: A verified account whose hash was made with a lower cost
+        user.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        // When: The user logs in
+        provider.authenticate(login("test@example.com", PASSWORD));
+
+        // Then: A hash at the current cost is written back and the cached entry dropped
+        ArgumentCaptor<String> hashCaptor = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updatePassword(eq("test@example.com"), hashCaptor.capture());
+        assertTrue(hashCaptor.getValue().startsWith("$2a$05$"));
+        assertTrue(currentEncoder.matches(PASSWORD, hashCaptor.getValue()));
+        assertNull(userCache.getUserFromCache("test@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should not re-hash a password already at the current cost")
+    void authenticate_whenHashCostIsCurrent_shouldNotUpgradeHash() {
+        // Given: A verified account hashed at the current cost
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        // When: The user logs in
+        provider.authenticate(login("test@example.com", PASSWORD));
+
+        // Then: The stored hash is left alone
+        verify(userRepository, never()).updatePassword(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should grant the role stored on the account, and keep it across a re-hash")
+    void authenticate_whenAdmin_shouldGrantAdminRole() {
+        // Given: A verified admin whose hash was made with a lower cost
+        user.setRole(User.Role.ADMIN);
+        user.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        // When: The admin logs in
+        Authentication authentication = provider.authenticate(login("test@example.com", PASSWORD));
+
+        // Then: ROLE_ADMIN is the only authority
+        assertEquals(List.of("ROLE_ADMIN"), authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+
+    private static UsernamePasswordAuthenticationToken login(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+}
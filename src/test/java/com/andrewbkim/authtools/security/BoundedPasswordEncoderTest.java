@@ -0,0 +1,102 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BoundedPasswordEncoder class.
+ */
+@DisplayName("Bounded Password Encoder Tests")
+public class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.close();
+    }
+
+    @Test
+    @DisplayName("Should run the delegate on the hashing pool and record latency")
+    void encode_shouldDelegateOnHashingThread() {
+        // Given: A delegate that reports the thread it ran on
+        encoder = new BoundedPasswordEncoder(new ThreadNamingEncoder(), 1, 1, Duration.ofSeconds(1), meterRegistry);
+
+        // When: A password is encoded
+        String encoded = encoder.encode("password123");
+
+        // Then: The work happened on a hashing thread and was timed
+        assertTrue(encoded.startsWith("password-hashing-"));
+        assertEquals(1, meterRegistry.get("auth.hashing.latency").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should reject with SERVICE_UNAVAILABLE when the hashing queue is full")
+    void encode_whenQueueIsFull_shouldRejectWithRetryAfter() throws Exception {
+        // Given: One busy hashing thread and one queued request fill the pool
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, Duration.ofSeconds(2), meterRegistry);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("auth.hashing.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // When & Then: A third request is turned away
+        RetryLaterException exception = assertThrows(RetryLaterException.class, () -> encoder.encode("third"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+        assertEquals(1.0, meterRegistry.get("auth.hashing.rejected").counter().count());
+
+        // Then: The accepted requests still complete once the pool frees up
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static class ThreadNamingEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return Thread.currentThread().getName();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return true;
+        }
+    }
+
+    private class BlockingEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.andrewbkim.authtools.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BreachedPasswordIndex and BreachedPasswordIndexBuilder classes.
+ */
+@DisplayName("Breached Password Index Tests")
+public class BreachedPasswordIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should find every password in the dump and nothing else")
+    void contains_shouldMatchOnlyIndexedPasswords() throws IOException {
+        // Given: An index built from a sorted dump of 1,000 passwords
+        List<String> breached = IntStream.range(0, 1_000).mapToObj(i -> "breached-" + i).toList();
+        Path index = buildIndex(breached);
+
+        // When & Then: Each is found and fresh passwords are not
+        try (BreachedPasswordIndex passwords = BreachedPasswordIndex.open(index)) {
+            assertEquals(1_000, passwords.size());
+            breached.forEach(password -> assertTrue(passwords.contains(password), password));
+            assertFalse(passwords.contains("correct horse battery staple"));
+            assertFalse(passwords.contains("breached-1000"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should collapse duplicate hashes")
+    void build_whenDumpHasDuplicates_shouldWriteThemOnce() throws IOException {
+        // Given: A dump listing the same hash twice
+        String hash = hex("password");
+        Files.writeString(directory.resolve("dump.txt"), hash + ":10\n" + hash + ":3\n");
+
+        // When
+        long entries = BreachedPasswordIndexBuilder.build(directory.resolve("dump.txt"), directory.resolve("index"));
+
+        // Then
+        assertEquals(1, entries);
+    }
+
+    @Test
+    @DisplayName("Should refuse a dump that is not ordered by hash")
+    void build_whenDumpUnsorted_shouldFail() throws IOException {
+        // Given: Two hashes in descending order
+        Files.writeString(directory.resolve("dump.txt"), "F".repeat(40) + ":1\n" + "0".repeat(40) + ":1\n");
+
+        // When & Then: The build fails and leaves no index behind
+        assertThrows(IOException.class,
+                () -> BreachedPasswordIndexBuilder.build(directory.resolve("dump.txt"), directory.resolve("index")));
+        assertFalse(Files.exists(directory.resolve("index")));
+    }
+
+    @Test
+    @DisplayName("Should refuse to map a file that is not an index")
+    void open_whenNotAnIndex_shouldFail() throws IOException {
+        // Given
+        Path file = Files.writeString(directory.resolve("index"), "not an index");
+
+        // When & Then
+        assertThrows(IOException.class, () -> BreachedPasswordIndex.open(file));
+    }
+
+    private Path buildIndex(List<String> passwords) throws IOException {
+        List<String> lines = passwords.stream()
+                .map(password -> hex(password) + ":1")
+                .sorted()
+                .toList();
+        Path dump = Files.write(directory.resolve("dump.txt"), lines);
+        Path index = directory.resolve("index");
+        BreachedPasswordIndexBuilder.build(dump, index);
+        return index;
+    }
+
+    private static String hex(String password) {
+        return HexFormat.of().withUpperCase().formatHex(BreachedPasswordIndex.sha1(password));
+    }
+}
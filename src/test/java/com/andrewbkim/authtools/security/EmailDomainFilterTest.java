@@ -0,0 +1,126 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.config.EmailDomainProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the EmailDomainFilter class.
+ */
+@DisplayName("Email Domain Filter Tests")
+public class EmailDomainFilterTest {
+
+    @TempDir
+    Path directory;
+
+    private Path blocklist;
+    private Path allowlist;
+    private EmailDomainProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blocklist = write("blocked.txt", """
+                # Disposable providers
+                mailinator.com
+                *.throwaway.io
+                .Trash-Mail.net.
+                """, Instant.parse("2026-01-01T00:00:00Z"));
+        allowlist = write("allowed.txt", "partners.throwaway.io\n", Instant.parse("2026-01-01T00:00:00Z"));
+        properties = new EmailDomainProperties();
+        properties.setBlocklistFile(blocklist);
+        properties.setAllowlistFile(allowlist);
+    }
+
+    @Test
+    @DisplayName("Should refuse listed domains and their subdomains in any casing")
+    void isAllowed_whenDomainListed_shouldRefuse() {
+        // Given
+        EmailDomainFilter filter = new EmailDomainFilter(properties, new SimpleMeterRegistry());
+
+        // When & Then
+        assertFalse(filter.isAllowed("someone@mailinator.com"));
+        assertFalse(filter.isAllowed("someone@EU.Mailinator.COM"));
+        assertFalse(filter.isAllowed("someone@throwaway.io"));
+        assertFalse(filter.isAllowed("someone@trash-mail.net"));
+    }
+
+    @Test
+    @DisplayName("Should accept unlisted domains, including look-alike suffixes")
+    void isAllowed_whenDomainNotListed_shouldAccept() {
+        // Given
+        EmailDomainFilter filter = new EmailDomainFilter(properties, new SimpleMeterRegistry());
+
+        // When & Then
+        assertTrue(filter.isAllowed("someone@example.com"));
+        assertTrue(filter.isAllowed("someone@notmailinator.com"));
+        assertTrue(filter.isAllowed("someone@mailinator.com.example.org"));
+    }
+
+    @Test
+    @DisplayName("Should let the allowlist override the blocklist")
+    void isAllowed_whenDomainAllowlisted_shouldAccept() {
+        // Given
+        EmailDomainFilter filter = new EmailDomainFilter(properties, new SimpleMeterRegistry());
+
+        // When & Then
+        assertTrue(filter.isAllowed("someone@partners.throwaway.io"));
+        assertFalse(filter.isAllowed("someone@other.throwaway.io"));
+    }
+
+    @Test
+    @DisplayName("Should accept everything when no lists are configured")
+    void isAllowed_whenNoLists_shouldAccept() {
+        // Given
+        EmailDomainFilter filter = new EmailDomainFilter(new EmailDomainProperties(), new SimpleMeterRegistry());
+
+        // When & Then
+        assertTrue(filter.isAllowed("someone@mailinator.com"));
+    }
+
+    @Test
+    @DisplayName("Should pick up a changed blocklist on reload")
+    void reloadIfChanged_whenFileChanged_shouldSwapLists() throws IOException {
+        // Given: A running filter
+        EmailDomainFilter filter = new EmailDomainFilter(properties, new SimpleMeterRegistry());
+        assertTrue(filter.isAllowed("someone@guerrillamail.com"));
+
+        // When: The blocklist is replaced and the reload runs
+        write("blocked.txt", "guerrillamail.com\n", Instant.parse("2026-01-02T00:00:00Z"));
+        filter.reloadIfChanged();
+
+        // Then: The new list applies and the old one is gone
+        assertFalse(filter.isAllowed("someone@guerrillamail.com"));
+        assertTrue(filter.isAllowed("someone@mailinator.com"));
+    }
+
+    @Test
+    @DisplayName("Should keep the current lists when the file cannot be read")
+    void reloadIfChanged_whenFileMissing_shouldKeepLists() throws IOException {
+        // Given: A running filter
+        EmailDomainFilter filter = new EmailDomainFilter(properties, new SimpleMeterRegistry());
+
+        // When: The blocklist disappears
+        Files.delete(blocklist);
+        filter.reloadIfChanged();
+
+        // Then: The last good list still applies
+        assertFalse(filter.isAllowed("someone@mailinator.com"));
+    }
+
+    private Path write(String name, String content, Instant modified) throws IOException {
+        Path file = Files.writeString(directory.resolve(name), content);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+}
@@ -0,0 +1,102 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that only accounts with the ADMIN role in app_user can see and lift lockouts.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lockout-endpoint;DB_CLOSE_DELAY=-1",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "auth-tools.hashing.calibrate=false",
+        "auth-tools.audit.enabled=false"
+})
+@AutoConfigureMockMvc
+@DisplayName("Lockout Endpoint Tests")
+public class LockoutEndpointTest {
+
+    private static final String LOCKED_EMAIL = "locked@example.com";
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoginFailureTracker failureTracker;
+
+    @BeforeEach
+    void setUp() {
+        save("admin@example.com", User.Role.ADMIN);
+        save("member@example.com", User.Role.USER);
+        for (int i = 0; i < 5; i++) {
+            failureTracker.recordFailure(LOCKED_EMAIL, null);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        failureTracker.unlock(LoginFailureTracker.Kind.ACCOUNT, LOCKED_EMAIL);
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Should let an admin list and clear a lockout")
+    void lockouts_whenAdmin_shouldListAndUnlock() throws Exception {
+        // Given: An admin account in app_user
+        RequestPostProcessor admin = httpBasic("admin@example.com", PASSWORD);
+
+        // When & Then: The locked account is listed, then unlocked
+        mockMvc.perform(get("/actuator/lockouts").with(admin))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts[0].key").value(LOCKED_EMAIL));
+        mockMvc.perform(delete("/actuator/lockouts/account/" + LOCKED_EMAIL).with(admin))
+                .andExpect(status().isOk());
+        assertEquals(0, failureTracker.lockedForNanos(LOCKED_EMAIL, null));
+    }
+
+    @Test
+    @DisplayName("Should refuse the lockout endpoint to an ordinary user")
+    void lockouts_whenUser_shouldBeForbidden() throws Exception {
+        // Given: An ordinary account
+        RequestPostProcessor member = httpBasic("member@example.com", PASSWORD);
+
+        // When & Then: Both operations are forbidden and the lockout stays
+        mockMvc.perform(get("/actuator/lockouts").with(member))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/actuator/lockouts/account/" + LOCKED_EMAIL).with(member))
+                .andExpect(status().isForbidden());
+        assertTrue(failureTracker.lockedForNanos(LOCKED_EMAIL, null) > 0);
+    }
+
+    private void save(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+        user.setEnabled(true);
+        user.setRole(role);
+        userRepository.save(user);
+    }
+}
@@ -0,0 +1,144 @@
+package com.andrewbkim.authtools.security;
+
+import com.andrewbkim.authtools.config.LoginProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the LoginFailureTracker class.
+ */
+@DisplayName("Login Failure Tracker Tests")
+public class LoginFailureTrackerTest {
+
+    private static final String CLIENT = "10.0.0.1";
+
+    private final AtomicLong clock = new AtomicLong(42);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoginFailureTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        LoginProperties.Throttle properties = new LoginProperties.Throttle();
+        properties.setDecayHalfLife(Duration.ofMinutes(10));
+        properties.setAccount(new LoginProperties.Policy(3, Duration.ofSeconds(30), Duration.ofMinutes(2)));
+        properties.setClient(new LoginProperties.Policy(10, Duration.ofMinutes(1), Duration.ofHours(1)));
+        tracker = new LoginFailureTracker(properties, meterRegistry, clock::get);
+    }
+
+    @Test
+    @DisplayName("Should not lock an account below the threshold")
+    void recordFailure_whenBelowThreshold_shouldNotLock() {
+        // Given: Two wrong passwords
+        failAccount("test@example.com", 2);
+
+        // When & Then: The account may still try
+        assertEquals(0, tracker.lockedForNanos("test@example.com", CLIENT));
+    }
+
+    @Test
+    @DisplayName("Should lock an account at the threshold and double the lockout on every further failure")
+    void recordFailure_whenAtThreshold_shouldLockProgressively() {
+        // Given: Failures up to the threshold
+        failAccount("test@example.com", 3);
+
+        // Then: The account is locked for the initial lockout, whatever the casing
+        assertEquals(Duration.ofSeconds(30).toNanos(), tracker.lockedForNanos("Test@Example.com", CLIENT));
+
+        // When: Two more failures arrive
+        failAccount("test@example.com", 2);
+
+        // Then: The lockout has doubled twice
+        assertEquals(Duration.ofMinutes(2).toNanos(), tracker.lockedForNanos("test@example.com", CLIENT));
+
+        // When: Many more failures arrive
+        failAccount("test@example.com", 100);
+
+        // Then: The lockout stays at its ceiling
+        assertEquals(Duration.ofMinutes(2).toNanos(), tracker.lockedForNanos("test@example.com", CLIENT));
+    }
+
+    @Test
+    @DisplayName("Should let failures decay over time")
+    void recordFailure_whenOldFailuresDecayed_shouldNotLock() {
+        // Given: Two failures, then two half-lives of quiet
+        failAccount("test@example.com", 2);
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+
+        // When: Another failure arrives
+        failAccount("test@example.com", 1);
+
+        // Then: The decayed count is below the threshold
+        assertEquals(0, tracker.lockedForNanos("test@example.com", CLIENT));
+    }
+
+    @Test
+    @DisplayName("Should lock a client guessing across many accounts")
+    void recordFailure_whenClientSpraysAccounts_shouldLockClient() {
+        // Given: One failure each against ten accounts from the same client
+        IntStream.range(0, 10).forEach(i -> tracker.recordFailure("user" + i + "@example.com", CLIENT));
+
+        // When & Then: The client is locked, even for an untouched account, but others are not
+        assertEquals(Duration.ofMinutes(1).toNanos(), tracker.lockedForNanos("fresh@example.com", CLIENT));
+        assertEquals(0, tracker.lockedForNanos("fresh@example.com", "10.0.0.2"));
+        assertEquals(1, tracker.lockouts(LoginFailureTracker.Kind.CLIENT).size());
+    }
+
+    @Test
+    @DisplayName("Should forget an account's failures after a successful login")
+    void recordSuccess_shouldResetAccount() {
+        // Given: Failures just below the threshold
+        failAccount("test@example.com", 2);
+
+        // When: The user gets their password right, then wrong once more
+        tracker.recordSuccess("test@example.com");
+        failAccount("test@example.com", 1);
+
+        // Then: The account is not locked
+        assertEquals(0, tracker.lockedForNanos("test@example.com", CLIENT));
+    }
+
+    @Test
+    @DisplayName("Should count only keys whose lockout is still running in the lockouts gauge")
+    void lockoutsGauge_shouldCountCurrentLockouts() {
+        // Given: One locked account and one below the threshold
+        failAccount("locked@example.com", 3);
+        failAccount("other@example.com", 1);
+
+        // Then: The gauge counts the locked one
+        assertEquals(1, meterRegistry.get("auth.login.lockouts").tag("key", "account").gauge().value());
+
+        // When: The lockout runs out
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        // Then: Nothing is counted
+        assertEquals(0, meterRegistry.get("auth.login.lockouts").tag("key", "account").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should lift a lockout on request")
+    void unlock_shouldLiftLockout() {
+        // Given: A locked account
+        failAccount("test@example.com", 3);
+        assertEquals(1, tracker.lockouts(LoginFailureTracker.Kind.ACCOUNT).size());
+
+        // When: An operator unlocks it
+        boolean unlocked = tracker.unlock(LoginFailureTracker.Kind.ACCOUNT, "Test@Example.com");
+
+        // Then: The account may try again
+        assertTrue(unlocked);
+        assertEquals(0, tracker.lockedForNanos("test@example.com", null));
+    }
+
+    private void failAccount(String username, int times) {
+        // No client, so only the account policy applies
+        IntStream.range(0, times).forEach(i -> tracker.recordFailure(username, null));
+    }
+}
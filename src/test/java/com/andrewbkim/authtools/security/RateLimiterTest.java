@@ -0,0 +1,84 @@
+package com.andrewbkim.authtools.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RateLimiter class.
+ */
+@DisplayName("Rate Limiter Tests")
+public class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(42);
+
+    @Test
+    @DisplayName("Should admit a full burst and then reject with the time until the next permit")
+    void tryAcquire_whenBurstUsedUp_shouldReject() {
+        // Given: 3 permits per 30 seconds
+        RateLimiter limiter = new RateLimiter(3, Duration.ofSeconds(30), 100, clock::get);
+
+        // When & Then: The burst is admitted and the next request waits one emission interval
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(Duration.ofSeconds(10).toNanos(), limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Should refill evenly over the period")
+    void tryAcquire_whenTimePasses_shouldRefill() {
+        // Given: An exhausted key
+        RateLimiter limiter = new RateLimiter(3, Duration.ofSeconds(30), 100, clock::get);
+        IntStream.range(0, 3).forEach(i -> limiter.tryAcquire("10.0.0.1"));
+
+        // When: One emission interval passes
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // Then: Exactly one more request is admitted
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+    }
+
+    @Test
+    @DisplayName("Should track keys independently")
+    void tryAcquire_shouldNotShareAllowanceBetweenKeys() {
+        // Given: A key that has used its allowance
+        RateLimiter limiter = new RateLimiter(1, Duration.ofMinutes(1), 100, clock::get);
+        limiter.tryAcquire("a@example.com");
+
+        // When & Then: Another key is unaffected
+        assertTrue(limiter.tryAcquire("a@example.com") > 0);
+        assertEquals(0, limiter.tryAcquire("b@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should never admit more than the allowance under concurrent callers")
+    void tryAcquire_whenCalledConcurrently_shouldAdmitExactlyTheBurst() {
+        // Given: 100 permits per hour and a frozen clock
+        RateLimiter limiter = new RateLimiter(100, Duration.ofHours(1), 100, clock::get);
+        AtomicInteger admitted = new AtomicInteger();
+
+        // When: Many threads race for the same key
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            if (limiter.tryAcquire("10.0.0.1") == 0) {
+                admitted.incrementAndGet();
+            }
+        });
+
+        // Then: Exactly the burst got through
+        assertEquals(100, admitted.get());
+    }
+
+    @Test
+    @DisplayName("Should reject a configuration without permits")
+    void constructor_whenNoPermits_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, Duration.ofMinutes(1), 100, clock::get));
+    }
+}
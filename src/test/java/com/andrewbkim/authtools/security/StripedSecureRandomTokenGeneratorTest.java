@@ -0,0 +1,45 @@
+package com.andrewbkim.authtools.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StripedSecureRandomTokenGenerator class.
+ */
+@DisplayName("Striped SecureRandom Token Generator Tests")
+public class StripedSecureRandomTokenGeneratorTest {
+
+    @Test
+    @DisplayName("Should produce tokens of the configured size")
+    void generate_shouldHonourTokenSize() {
+        assertEquals(16, new StripedSecureRandomTokenGenerator(128, 4).generate().length);
+        assertEquals(32, new StripedSecureRandomTokenGenerator(256, 4).generate().length);
+    }
+
+    @Test
+    @DisplayName("Should reject unsupported token sizes")
+    void constructor_whenSizeUnsupported_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedSecureRandomTokenGenerator(64, 4));
+    }
+
+    @Test
+    @DisplayName("Should not repeat tokens across concurrent callers")
+    void generate_whenCalledConcurrently_shouldProduceDistinctTokens() {
+        // Given: A generator with fewer stripes than callers
+        StripedSecureRandomTokenGenerator generator = new StripedSecureRandomTokenGenerator(128, 3);
+        Set<ByteBuffer> tokens = ConcurrentHashMap.newKeySet();
+
+        // When: Many tokens are generated in parallel
+        IntStream.range(0, 10_000).parallel().forEach(i -> tokens.add(ByteBuffer.wrap(generator.generate())));
+
+        // Then: All of them are distinct
+        assertEquals(10_000, tokens.size());
+    }
+}
@@ -0,0 +1,91 @@
+package com.andrewbkim.authtools.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ThrottledAuthenticationProvider class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Throttled Authentication Provider Tests")
+public class ThrottledAuthenticationProviderTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private LoginFailureTracker failureTracker;
+
+    private ThrottledAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = new ThrottledAuthenticationProvider(userDetailsService, failureTracker);
+        provider.setPasswordEncoder(passwordEncoder);
+    }
+
+    @Test
+    @DisplayName("Should refuse a locked-out login without loading the user or comparing the password")
+    void authenticate_whenLockedOut_shouldShortCircuit() {
+        // Given: The account is locked
+        when(failureTracker.lockedForNanos("test@example.com", null)).thenReturn(1_000L);
+
+        // When & Then: The login is refused before any expensive work
+        assertThrows(LockedException.class, () -> provider.authenticate(login("wrong")));
+        verifyNoInteractions(userDetailsService, passwordEncoder);
+        verify(failureTracker, never()).recordFailure(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should record a failure when the password is wrong")
+    void authenticate_whenPasswordWrong_shouldRecordFailure() {
+        // Given: An existing account and a wrong password
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(account());
+        when(passwordEncoder.matches("wrong", "hash")).thenReturn(false);
+
+        // When & Then
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("wrong")));
+        verify(failureTracker).recordFailure("test@example.com", null);
+        verify(failureTracker, never()).recordSuccess(anyString());
+    }
+
+    @Test
+    @DisplayName("Should reset the account's failures after a successful login")
+    void authenticate_whenPasswordRight_shouldRecordSuccess() {
+        // Given: An existing account and the right password
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(account());
+        when(passwordEncoder.matches("right", "hash")).thenReturn(true);
+
+        // When
+        assertTrue(provider.authenticate(login("right")).isAuthenticated());
+
+        // Then
+        verify(failureTracker).recordSuccess("test@example.com");
+    }
+
+    private static UsernamePasswordAuthenticationToken login(String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated("test@example.com", password);
+    }
+
+    private static User account() {
+        return (User) User.withUsername("test@example.com").password("hash").authorities("ROLE_USER").build();
+    }
+}
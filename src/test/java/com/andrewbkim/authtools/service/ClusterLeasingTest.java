@@ -0,0 +1,152 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.AuthToolsApplication;
+import com.andrewbkim.authtools.entity.MailOutboxMessage;
+import com.andrewbkim.authtools.repository.MailOutboxRepository;
+import com.andrewbkim.authtools.support.FakeSmtpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two application contexts against one shared in-memory database, the way several
+ * nodes share one database in production, and checks that they split work without overlap.
+ */
+@DisplayName("Cluster Leasing Tests")
+public class ClusterLeasingTest {
+
+    private static final Duration CLAIM_TIMEOUT = Duration.ofSeconds(1);
+
+    private static FakeSmtpServer smtpServer;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() throws Exception {
+        nodeB.close();
+        nodeA.close();
+        smtpServer.close();
+    }
+
+    @AfterEach
+    void clearOutbox() {
+        nodeA.getBean(MailOutboxRepository.class).deleteAllInBatch();
+        smtpServer.drain();
+    }
+
+    @Test
+    @DisplayName("Should deliver every outbox message exactly once when two nodes dispatch at the same time")
+    void dispatchPending_onTwoNodes_shouldSplitWork() {
+        // Given: 300 queued messages
+        MailOutboxRepository outbox = nodeA.getBean(MailOutboxRepository.class);
+        outbox.saveAll(IntStream.range(0, 300)
+                .mapToObj(i -> new MailOutboxMessage("user" + i + "@example.com", "Confirm", "body " + i))
+                .toList());
+
+        // When: Both nodes drain the outbox concurrently
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> nodeA.getBean(MailOutboxDispatcher.class).dispatchPending()),
+                CompletableFuture.runAsync(() -> nodeB.getBean(MailOutboxDispatcher.class).dispatchPending())
+        ).join();
+
+        // Then: Every recipient got exactly one message and the outbox is empty
+        List<FakeSmtpServer.ReceivedMessage> received = smtpServer.drain();
+        Set<String> recipients = new HashSet<>();
+        received.forEach(message -> recipients.addAll(message.recipients()));
+        assertEquals(300, received.size());
+        assertEquals(300, recipients.size());
+        assertEquals(0, outbox.count());
+    }
+
+    @Test
+    @DisplayName("Should let another node send a batch once the claiming node's lease expires")
+    void dispatchPending_whenClaimingNodeDies_shouldFailOver() throws Exception {
+        // Given: Node A claimed a batch and then died before sending it
+        MailOutboxRepository outbox = nodeA.getBean(MailOutboxRepository.class);
+        outbox.saveAll(List.of(new MailOutboxMessage("a@example.com", "Confirm", "body"),
+                new MailOutboxMessage("b@example.com", "Confirm", "body")));
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outbox.findDueIds(MailOutboxMessage.Status.PENDING, now, Limit.of(10));
+        nodeA.getBean(TransactionTemplate.class).execute(status -> outbox.claim(ids,
+                MailOutboxMessage.Status.PENDING, now, "dead-node-claim", now.plus(CLAIM_TIMEOUT)));
+        MailOutboxDispatcher dispatcherB = nodeB.getBean(MailOutboxDispatcher.class);
+
+        // When: Node B runs while the claim is live, and again after it lapsed
+        dispatcherB.dispatchPending();
+        List<FakeSmtpServer.ReceivedMessage> whileClaimed = smtpServer.drain();
+        Thread.sleep(CLAIM_TIMEOUT.plusMillis(200).toMillis());
+        dispatcherB.dispatchPending();
+
+        // Then: Node B leaves the batch alone at first, then delivers it
+        assertTrue(whileClaimed.isEmpty());
+        assertEquals(2, smtpServer.drain().size());
+        assertEquals(0, outbox.count());
+    }
+
+    @Test
+    @DisplayName("Should hand a job lease to one node at a time")
+    void tryAcquire_onTwoNodes_shouldBeExclusive() {
+        // Given: Both nodes' lease handles
+        JobLeases leasesA = nodeA.getBean(JobLeases.class);
+        JobLeases leasesB = nodeB.getBean(JobLeases.class);
+
+        // When / Then: A takes and renews the lease, B is refused until A releases it
+        assertTrue(leasesA.tryAcquire("cluster-test", Duration.ofMinutes(1)));
+        assertFalse(leasesB.tryAcquire("cluster-test", Duration.ofMinutes(1)));
+        assertTrue(leasesA.tryAcquire("cluster-test", Duration.ofMinutes(1)));
+        leasesA.release("cluster-test");
+        assertTrue(leasesB.tryAcquire("cluster-test", Duration.ofMinutes(1)));
+        assertFalse(leasesA.tryAcquire("cluster-test", Duration.ofMinutes(1)));
+        leasesB.release("cluster-test");
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(AuthToolsApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:cluster-leasing;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.mail.host=localhost",
+                        "spring.mail.port=" + smtpServer.getPort(),
+                        "spring.mail.username=",
+                        "spring.mail.password=",
+                        "spring.mail.properties.mail.smtp.auth=false",
+                        "spring.mail.properties.mail.smtp.starttls.enable=false",
+                        "auth-tools.cluster.node-id=" + nodeId,
+                        // Only the test drives the dispatchers
+                        "auth-tools.mail.outbox.poll-interval=PT1H",
+                        "auth-tools.mail.outbox.batch-size=20",
+                        "auth-tools.mail.outbox.concurrency=2",
+                        "auth-tools.mail.outbox.claim-timeout=" + CLAIM_TIMEOUT,
+                        "auth-tools.reaper.enabled=false",
+                        // Both nodes run in one working directory, and an audit directory takes one writer
+                        "auth-tools.audit.enabled=false",
+                        "auth-tools.hashing.calibrate=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+}
@@ -0,0 +1,208 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.MailOutboxProperties;
+import com.andrewbkim.authtools.entity.MailOutboxMessage;
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.andrewbkim.authtools.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the MailOutboxDispatcher class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Mail Outbox Dispatcher Tests")
+public class MailOutboxDispatcherTest {
+
+    @Mock
+    private MailOutboxRepository outboxRepository;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MailOutboxProperties properties;
+    private MailOutboxDispatcher dispatcher;
+    private MailOutboxMessage outboxMessage;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MailOutboxProperties();
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofSeconds(5));
+        properties.setMaxBackoff(Duration.ofSeconds(12));
+        dispatcher = new MailOutboxDispatcher(outboxRepository, mailSender, properties, Runnable::run,
+                new TransactionTemplate(transactionManager), new AuthMetrics(meterRegistry));
+
+        outboxMessage = new MailOutboxMessage("test@example.com", "Confirm your registration", "body");
+        outboxMessage.setId(1L);
+    }
+
+    @Test
+    @DisplayName("Should send due messages and remove them from the outbox")
+    void dispatchPending_whenDeliverySucceeds_shouldDeleteMessage() {
+        // Given: One message is due and this node claims it
+        givenClaimed(outboxMessage);
+
+        // When: The dispatcher runs
+        dispatcher.dispatchPending();
+
+        // Then: The mail is sent to the recipient and the outbox row is removed
+        ArgumentCaptor<SimpleMailMessage> mailCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailSender).send(mailCaptor.capture());
+        assertArrayEquals(new String[]{"test@example.com"}, mailCaptor.getValue().getTo());
+        verify(outboxRepository).delete(outboxMessage);
+        assertEquals(1.0, meterRegistry.get("auth.mail.outbox.delivered").counter().count());
+        assertEquals(1, meterRegistry.get("auth.phase").tag("phase", "mail_send").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should deliver every message of a batch when sending in parallel")
+    void dispatchPending_whenConcurrent_shouldDeliverWholeBatch() {
+        // Given: Parallel delivery and a batch of three due messages
+        properties.setConcurrency(2);
+        MailOutboxMessage second = new MailOutboxMessage("second@example.com", "subject", "body");
+        MailOutboxMessage third = new MailOutboxMessage("third@example.com", "subject", "body");
+        second.setId(2L);
+        third.setId(3L);
+        givenClaimed(outboxMessage, second, third);
+
+        // When: The dispatcher runs
+        dispatcher.dispatchPending();
+
+        // Then: All three were sent and removed
+        verify(mailSender, times(3)).send(any(SimpleMailMessage.class));
+        verify(outboxRepository).delete(outboxMessage);
+        verify(outboxRepository).delete(second);
+        verify(outboxRepository).delete(third);
+    }
+
+    @Test
+    @DisplayName("Should claim due messages for a limited time before sending them")
+    void dispatchPending_shouldClaimBatchWithLease() {
+        // Given: One message is due and this node claims it
+        givenClaimed(outboxMessage);
+
+        // When: The dispatcher runs
+        dispatcher.dispatchPending();
+
+        // Then: The claim defers the message by the claim timeout, and the claimed rows are what gets sent
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<String> claimToken = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<LocalDateTime> leaseUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).claim(eq(List.of(1L)), eq(MailOutboxMessage.Status.PENDING), now.capture(),
+                claimToken.capture(), leaseUntil.capture());
+        assertEquals(now.getValue().plus(properties.getClaimTimeout()), leaseUntil.getValue());
+        verify(outboxRepository).findByClaimTokenOrderById(claimToken.getValue());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should send nothing when another node claimed the due messages first")
+    void dispatchPending_whenClaimedElsewhere_shouldSkip() {
+        // Given: A due message that another node claims before this one
+        when(outboxRepository.findDueIds(eq(MailOutboxMessage.Status.PENDING), any(LocalDateTime.class), any()))
+                .thenReturn(List.of(1L));
+        when(outboxRepository.claim(any(), any(), any(), any(), any())).thenReturn(0);
+
+        // When: The dispatcher runs
+        dispatcher.dispatchPending();
+
+        // Then: Nothing is loaded or sent
+        verify(outboxRepository, never()).findByClaimTokenOrderById(any());
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    @DisplayName("Should reschedule a message with backoff when delivery fails")
+    void deliver_whenDeliveryFails_shouldScheduleRetry() {
+        // Given: The mail relay is down
+        doThrow(new MailSendException("relay down")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When: Delivery is attempted
+        dispatcher.deliver(outboxMessage);
+
+        // Then: The message stays pending with a future retry time
+        verify(outboxRepository, never()).delete(any());
+        verify(outboxRepository).save(outboxMessage);
+        assertEquals(1, outboxMessage.getAttempts());
+        assertEquals(MailOutboxMessage.Status.PENDING, outboxMessage.getStatus());
+        assertTrue(outboxMessage.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals("relay down", outboxMessage.getLastError());
+    }
+
+    @Test
+    @DisplayName("Should record a failed attempt when the sender throws something other than a MailException")
+    void deliver_whenSenderThrowsUnexpectedly_shouldScheduleRetry() {
+        // Given: The sender fails with an unchecked exception of its own
+        doThrow(new IllegalStateException("connection pool closed")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When: Delivery is attempted
+        dispatcher.deliver(outboxMessage);
+
+        // Then: The attempt is counted and retried like any other failure
+        verify(outboxRepository, never()).delete(any());
+        verify(outboxRepository).save(outboxMessage);
+        assertEquals(1, outboxMessage.getAttempts());
+        assertEquals(MailOutboxMessage.Status.PENDING, outboxMessage.getStatus());
+        assertEquals("connection pool closed", outboxMessage.getLastError());
+    }
+
+    @Test
+    @DisplayName("Should dead-letter a message after the maximum number of attempts")
+    void deliver_whenAttemptsExhausted_shouldDeadLetter() {
+        // Given: The message already failed twice and the relay is still down
+        outboxMessage.setAttempts(2);
+        doThrow(new MailSendException("relay down")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        // When: Delivery is attempted
+        dispatcher.deliver(outboxMessage);
+
+        // Then: The message is marked dead
+        assertEquals(3, outboxMessage.getAttempts());
+        assertEquals(MailOutboxMessage.Status.DEAD, outboxMessage.getStatus());
+        verify(outboxRepository).save(outboxMessage);
+        assertEquals(1.0, meterRegistry.get("auth.mail.outbox.dead.lettered").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should double the backoff per attempt up to the configured maximum")
+    void backoff_shouldGrowExponentiallyAndBeCapped() {
+        assertEquals(Duration.ofSeconds(5), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(12), dispatcher.backoff(3));
+        assertEquals(Duration.ofSeconds(12), dispatcher.backoff(40));
+    }
+
+    private void givenClaimed(MailOutboxMessage... messages) {
+        List<Long> ids = Arrays.stream(messages).map(MailOutboxMessage::getId).toList();
+        when(outboxRepository.findDueIds(eq(MailOutboxMessage.Status.PENDING), any(LocalDateTime.class), any()))
+                .thenReturn(ids);
+        when(outboxRepository.claim(eq(ids), eq(MailOutboxMessage.Status.PENDING), any(), any(), any()))
+                .thenReturn(messages.length);
+        when(outboxRepository.findByClaimTokenOrderById(any())).thenReturn(List.of(messages));
+    }
+}
@@ -0,0 +1,170 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.support.FakeSmtpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PooledSmtpMailSender class.
+ */
+@DisplayName("Pooled SMTP Mail Sender Tests")
+public class PooledSmtpMailSenderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeSmtpServer smtpServer;
+    private PooledSmtpMailSender mailSender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        mailSender = sender(2, Duration.ofMinutes(1), 100);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailSender.close();
+        smtpServer.close();
+    }
+
+    @Test
+    @DisplayName("Should reuse one connection for consecutive sends")
+    void send_whenSequential_shouldReuseConnection() throws Exception {
+        // When: Ten messages are sent one call at a time
+        for (int i = 0; i < 10; i++) {
+            mailSender.send(message(i));
+        }
+
+        // Then: All arrive over a single connection
+        assertEquals(10, awaitMessages(10).size());
+        assertEquals(1, smtpServer.getConnectionCount());
+        assertEquals(1.0, meterRegistry.get("auth.mail.smtp.connections.opened").counter().count());
+        assertEquals(1.0, meterRegistry.get("auth.mail.smtp.connections.idle").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should send a whole batch over one connection")
+    void send_whenBatch_shouldUseOneConnection() throws Exception {
+        // When: Twenty messages are sent in one call
+        mailSender.send(IntStream.range(0, 20).mapToObj(this::message).toArray(SimpleMailMessage[]::new));
+
+        // Then: They all arrive, in order, over one connection
+        List<FakeSmtpServer.ReceivedMessage> received = awaitMessages(20);
+        assertEquals(List.of("user0@example.com"), received.getFirst().recipients());
+        assertEquals(List.of("user19@example.com"), received.getLast().recipients());
+        assertEquals(1, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("Should never open more connections than the pool allows")
+    void send_whenConcurrent_shouldCapConnections() throws Exception {
+        // Given: Eight threads sending at once against a pool of two
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> sends = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                SimpleMailMessage message = message(i);
+                sends.add(CompletableFuture.runAsync(() -> mailSender.send(message), executor));
+            }
+
+            // When: All sends complete
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then: Every message arrived over at most two connections
+        assertEquals(40, awaitMessages(40).size());
+        assertTrue(smtpServer.getConnectionCount() <= 2,
+                "opened " + smtpServer.getConnectionCount() + " connections");
+    }
+
+    @Test
+    @DisplayName("Should reconnect and resend when the relay drops an idle connection")
+    void send_whenConnectionDropped_shouldReconnect() throws Exception {
+        // Given: A pooled connection that the server has since closed
+        mailSender.send(message(0));
+        awaitMessages(1);
+        smtpServer.dropConnections();
+
+        // When: The next message is sent
+        mailSender.send(message(1));
+
+        // Then: It is delivered over a fresh connection
+        List<FakeSmtpServer.ReceivedMessage> received = awaitMessages(1);
+        assertEquals(List.of("user1@example.com"), received.getFirst().recipients());
+        assertEquals(2, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("Should replace a connection after the per-connection message limit")
+    void send_whenLimitReached_shouldOpenNewConnection() throws Exception {
+        // Given: A pool that retires connections after three messages
+        mailSender.close();
+        mailSender = sender(1, Duration.ofMinutes(1), 3);
+
+        // When: Seven messages are sent
+        mailSender.send(IntStream.range(0, 7).mapToObj(this::message).toArray(SimpleMailMessage[]::new));
+
+        // Then: Three connections were used
+        assertEquals(7, awaitMessages(7).size());
+        assertEquals(3, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    @DisplayName("Should not reuse a connection idle longer than max-idle")
+    void send_whenIdleTooLong_shouldOpenNewConnection() throws Exception {
+        // Given: A pool whose connections expire immediately
+        mailSender.close();
+        mailSender = sender(1, Duration.ZERO, 100);
+
+        // When: Two messages are sent one call at a time
+        mailSender.send(message(0));
+        mailSender.send(message(1));
+
+        // Then: Each send used its own connection
+        assertEquals(2, awaitMessages(2).size());
+        assertEquals(2, smtpServer.getConnectionCount());
+    }
+
+    private PooledSmtpMailSender sender(int maxConnections, Duration maxIdle, int maxMessagesPerConnection) {
+        PooledSmtpMailSender sender = new PooledSmtpMailSender(maxConnections, Duration.ofSeconds(10), maxIdle,
+                maxMessagesPerConnection, meterRegistry);
+        sender.setHost("localhost");
+        sender.setPort(smtpServer.getPort());
+        return sender;
+    }
+
+    private SimpleMailMessage message(int i) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo("user" + i + "@example.com");
+        message.setSubject("Confirm your registration");
+        message.setText("token " + i);
+        return message;
+    }
+
+    private List<FakeSmtpServer.ReceivedMessage> awaitMessages(int count) throws InterruptedException {
+        List<FakeSmtpServer.ReceivedMessage> received = new ArrayList<>();
+        while (received.size() < count) {
+            FakeSmtpServer.ReceivedMessage message = smtpServer.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message, "expected " + count + " messages, got " + received.size());
+            received.add(message);
+        }
+        return received;
+    }
+}
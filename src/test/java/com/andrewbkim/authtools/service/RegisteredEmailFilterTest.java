@@ -0,0 +1,147 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.EmailFilterProperties;
+import com.andrewbkim.authtools.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the RegisteredEmailFilter class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Registered Email Filter Tests")
+public class RegisteredEmailFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EmailFilterProperties properties;
+    private RegisteredEmailFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EmailFilterProperties();
+        properties.setExpectedEmails(10_000);
+        properties.setFalsePositiveRate(0.01);
+        filter = new RegisteredEmailFilter(userRepository, new TransactionTemplate(transactionManager), properties,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        filter.close();
+    }
+
+    @Test
+    @DisplayName("Should answer UNKNOWN until warmed up")
+    void check_beforeWarmUp_shouldBeUnknown() {
+        assertEquals(RegisteredEmailFilter.Answer.UNKNOWN, filter.check("test@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should never rule out a registered email, and rule out most others")
+    void check_afterWarmUp_shouldHaveNoFalseNegatives() {
+        // Given: 10,000 registered users
+        when(userRepository.streamAllEmails()).thenReturn(emails("user", 10_000));
+
+        // When: The filter is warmed
+        filter.load();
+
+        // Then: Every registered email is a maybe, and about 1% of unregistered ones are
+        emails("user", 10_000).forEach(email ->
+                assertEquals(RegisteredEmailFilter.Answer.MAYBE, filter.check(email), email));
+        long falsePositives = emails("stranger", 100_000)
+                .filter(email -> filter.check(email) == RegisteredEmailFilter.Answer.MAYBE)
+                .count();
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(10_000, meterRegistry.get("auth.email.filter.entries").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should add a slice when full, keeping the false-positive rate near the target")
+    void add_beyondCapacity_shouldGrow() {
+        // Given: A warmed, empty filter sized for 10,000 emails
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        filter.load();
+        double initialBytes = meterRegistry.get("auth.email.filter.bytes").gauge().value();
+
+        // When: Five times as many emails are registered
+        emails("user", 50_000).forEach(filter::add);
+
+        // Then: The filter grew and still rules out most unregistered emails
+        assertTrue(meterRegistry.get("auth.email.filter.bytes").gauge().value() > initialBytes);
+        emails("user", 50_000).forEach(email ->
+                assertEquals(RegisteredEmailFilter.Answer.MAYBE, filter.check(email), email));
+        long falsePositives = emails("stranger", 100_000)
+                .filter(email -> filter.check(email) == RegisteredEmailFilter.Answer.MAYBE)
+                .count();
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Should stop growing at the memory budget")
+    void add_atMemoryBudget_shouldNotGrow() {
+        // Given: A budget that leaves no room for a second slice
+        properties.setMaxMemory(DataSize.ofBytes(BlockedBloomFilter.bytesFor(10_000, 0.005)));
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        filter.load();
+
+        // When: The first slice overflows
+        emails("user", 50_000).forEach(filter::add);
+
+        // Then: Memory stays within the budget, and registered emails are still never ruled out
+        assertTrue(meterRegistry.get("auth.email.filter.bytes").gauge().value() <= properties.getMaxMemory().toBytes());
+        assertEquals(RegisteredEmailFilter.Answer.MAYBE, filter.check("user49999@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should pick up users registered on other nodes since the last refresh")
+    void refresh_shouldAddRecentRegistrations() {
+        // Given: A warmed filter, and a user another node registered afterwards
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        filter.load();
+        when(userRepository.findEmailsCreatedSince(any(LocalDateTime.class)))
+                .thenReturn(List.of("elsewhere@example.com"));
+        assertEquals(RegisteredEmailFilter.Answer.ABSENT, filter.check("elsewhere@example.com"));
+
+        // When: The filter refreshes
+        filter.refresh();
+
+        // Then: The new user is no longer ruled out
+        assertEquals(RegisteredEmailFilter.Answer.MAYBE, filter.check("elsewhere@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should count false positives reported by callers")
+    void recordFalsePositive_shouldCount() {
+        filter.recordFalsePositive();
+
+        assertEquals(1.0, meterRegistry.get("auth.email.filter.false.positives").counter().count());
+    }
+
+    private static Stream<String> emails(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i + "@example.com");
+    }
+}
@@ -0,0 +1,145 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.VerificationTokenProperties;
+import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ResendCoordinator class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Resend Coordinator Tests")
+public class ResendCoordinatorTest {
+
+    @Mock
+    private UserService userService;
+
+    private ResendCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        VerificationTokenProperties properties = new VerificationTokenProperties();
+        properties.setResendInterval(Duration.ofMinutes(1));
+        coordinator = new ResendCoordinator(userService, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should run concurrent resends for the same address once")
+    void resend_whenConcurrent_shouldCoalesce() throws Exception {
+        // Given: The first resend blocks until released
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(userService).resendVerificationToken("test@example.com");
+
+        // When: Several requests arrive while it is in flight, in different casings
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> requests = new ArrayList<>();
+            requests.add(executor.submit(() -> coordinator.resend("test@example.com")));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                requests.add(executor.submit(() -> coordinator.resend("Test@Example.com")));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> request : requests) {
+                request.get(5, TimeUnit.SECONDS);
+            }
+        }
+
+        // Then: One resend ran and every request succeeded
+        verify(userService, times(1)).resendVerificationToken("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should not resend again when a request takes the slot just as the leader finishes")
+    void resend_whenRacingTheLeadersEnd_shouldNotResendAgain() throws Exception {
+        int rounds = 200;
+        VerificationTokenProperties properties = new VerificationTokenProperties();
+        properties.setResendInterval(Duration.ofMinutes(1));
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (int round = 0; round < rounds; round++) {
+                // Given: A leader held open until the racer is let go at the same moment
+                ResendCoordinator racedCoordinator =
+                        new ResendCoordinator(userService, properties, new SimpleMeterRegistry());
+                CountDownLatch started = new CountDownLatch(1);
+                CountDownLatch go = new CountDownLatch(1);
+                doAnswer(invocation -> {
+                    started.countDown();
+                    go.await(5, TimeUnit.SECONDS);
+                    return null;
+                }).when(userService).resendVerificationToken("test@example.com");
+                Future<?> leader = executor.submit(() -> racedCoordinator.resend("test@example.com"));
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+                Future<?> racer = executor.submit(() -> {
+                    go.await(5, TimeUnit.SECONDS);
+                    try {
+                        racedCoordinator.resend("test@example.com");
+                    } catch (RetryLaterException e) {
+                        // Refused as a repeat, which is as good as joining the leader
+                    }
+                    return null;
+                });
+
+                // When: The leader finishes while the racer arrives
+                go.countDown();
+                leader.get(5, TimeUnit.SECONDS);
+                racer.get(5, TimeUnit.SECONDS);
+            }
+        }
+
+        // Then: Every round sent exactly once
+        verify(userService, times(rounds)).resendVerificationToken("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should refuse another resend within the interval")
+    void resend_whenRecentlySent_shouldThrowTooManyRequests() {
+        // Given: A resend just succeeded
+        coordinator.resend("test@example.com");
+
+        // When & Then
+        RetryLaterException exception = assertThrows(RetryLaterException.class,
+                () -> coordinator.resend("test@example.com"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        verify(userService, times(1)).resendVerificationToken("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should not throttle after a failed resend")
+    void resend_whenFailed_shouldAllowRetry() {
+        // Given: The first attempt fails
+        doThrow(new RegistrationException("User not found with this email", HttpStatus.NOT_FOUND))
+                .doNothing()
+                .when(userService).resendVerificationToken("test@example.com");
+        assertThrows(RegistrationException.class, () -> coordinator.resend("test@example.com"));
+
+        // When & Then: The next attempt goes through
+        coordinator.resend("test@example.com");
+        verify(userService, times(2)).resendVerificationToken("test@example.com");
+    }
+}
@@ -0,0 +1,140 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.security.HmacKeyRing;
+import com.andrewbkim.authtools.security.SignedTokenCodec;
+import com.andrewbkim.authtools.security.StripedSecureRandomTokenGenerator;
+import com.andrewbkim.authtools.security.TokenGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the SignedVerificationTokenStrategy class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Signed Verification Token Strategy Tests")
+public class SignedVerificationTokenStrategyTest {
+
+    private static final String KEY_1 = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String KEY_2 = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final TokenGenerator tokenGenerator = new StripedSecureRandomTokenGenerator(128, 1);
+    private SignedTokenCodec tokenCodec;
+    private SignedVerificationTokenStrategy tokenStrategy;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenCodec = new SignedTokenCodec(new HmacKeyRing("k1", Map.of("k1", KEY_1)), tokenGenerator);
+        tokenStrategy = new SignedVerificationTokenStrategy(userRepository, tokenCodec);
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Should enable the user with a single conditional update")
+    void confirm_whenTokenIsValid_shouldEnableUser() {
+        // Given: A freshly issued token
+        String token = tokenStrategy.issue(user);
+        when(userRepository.enableIfDisabled(42L)).thenReturn(1);
+
+        // When: The token is confirmed
+        tokenStrategy.confirm(token);
+
+        // Then: Only the conditional update touches the database
+        verify(userRepository).enableIfDisabled(42L);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject a token whose payload was tampered with")
+    void confirm_whenTokenIsTampered_shouldThrowException() {
+        // Given: A token for another user id signed with a different payload
+        String token = tokenStrategy.issue(user);
+        String otherPayload = tokenCodec.encode(1L, Instant.now().plusSeconds(60)).split("\\.")[0];
+        String forged = otherPayload + token.substring(token.indexOf('.'));
+
+        // When & Then: An exception should be thrown and the database left alone
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(forged)
+        );
+        assertEquals("Invalid verification token", exception.getMessage());
+        verify(userRepository, never()).enableIfDisabled(anyLong());
+    }
+
+    @Test
+    @DisplayName("Should throw BAD_REQUEST exception for an expired token")
+    void confirm_whenTokenIsExpired_shouldThrowException() {
+        // Given: A correctly signed token that expired a minute ago
+        String token = tokenCodec.encode(42L, Instant.now().minusSeconds(60));
+
+        // When & Then: An exception should be thrown
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(token)
+        );
+        assertEquals("Verification token has expired", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should report an already verified account when no row is updated")
+    void confirm_whenAlreadyEnabled_shouldThrowException() {
+        // Given: The account was enabled by an earlier click
+        String token = tokenStrategy.issue(user);
+        when(userRepository.enableIfDisabled(42L)).thenReturn(0);
+        when(userRepository.existsById(42L)).thenReturn(true);
+
+        // When & Then: An exception should be thrown
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(token)
+        );
+        assertEquals("Account is already verified", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should reject a validly signed token whose account no longer exists")
+    void confirm_whenUserIsDeleted_shouldThrowInvalidToken() {
+        // Given: The never-verified account was reaped after the token was issued
+        String token = tokenStrategy.issue(user);
+        when(userRepository.enableIfDisabled(42L)).thenReturn(0);
+        when(userRepository.existsById(42L)).thenReturn(false);
+
+        // When & Then: The token is treated as invalid, not as already verified
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(token)
+        );
+        assertEquals("Invalid verification token", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should accept tokens signed with a retired key after rotation")
+    void confirm_afterKeyRotation_shouldAcceptOldTokens() {
+        // Given: A token signed with k1, then k2 becomes the active key
+        String oldToken = tokenStrategy.issue(user);
+        SignedTokenCodec rotated = new SignedTokenCodec(new HmacKeyRing("k2", Map.of("k1", KEY_1, "k2", KEY_2)), tokenGenerator);
+        SignedTokenCodec k2Only = new SignedTokenCodec(new HmacKeyRing("k2", Map.of("k2", KEY_2)), tokenGenerator);
+
+        // Then: The old token verifies while k1 is still in the ring, and not once it is dropped
+        assertEquals(42L, rotated.decode(oldToken).orElseThrow().userId());
+        assertTrue(k2Only.decode(oldToken).isEmpty());
+        assertEquals(42L, k2Only.decode(rotated.encode(42L, Instant.now().plusSeconds(60))).orElseThrow().userId());
+    }
+}
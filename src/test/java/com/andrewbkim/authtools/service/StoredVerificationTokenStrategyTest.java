@@ -0,0 +1,216 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.VerificationTokenProperties;
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.entity.VerificationToken;
+import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.exception.RetryLaterException;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.repository.VerificationTokenRepository;
+import com.andrewbkim.authtools.security.TokenGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the StoredVerificationTokenStrategy class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Stored Verification Token Strategy Tests")
+public class StoredVerificationTokenStrategyTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private VerificationTokenRepository tokenRepository;
+
+    @Mock
+    private TokenGenerator tokenGenerator;
+
+    private StoredVerificationTokenStrategy tokenStrategy;
+
+    private final byte[] tokenBytes = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+    private final String encodedToken = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        VerificationTokenProperties properties = new VerificationTokenProperties();
+        properties.setResendInterval(Duration.ofMinutes(1));
+        tokenStrategy = new StoredVerificationTokenStrategy(userRepository, tokenRepository, tokenGenerator, properties);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("test@example.com");
+        user.setPassword("encodedPassword");
+        user.setEnabled(false);
+    }
+
+    @Test
+    @DisplayName("Should store the raw token bytes and return them as base64url when issuing")
+    void issue_shouldSaveToken() {
+        // Given: The generator produces a known token
+        when(tokenGenerator.generate()).thenReturn(tokenBytes);
+
+        // When: A token is issued
+        String token = tokenStrategy.issue(user);
+
+        // Then: The raw bytes are persisted for the user and the compact text form is returned
+        ArgumentCaptor<VerificationToken> tokenCaptor = ArgumentCaptor.forClass(VerificationToken.class);
+        verify(tokenRepository).save(tokenCaptor.capture());
+        assertArrayEquals(tokenBytes, tokenCaptor.getValue().getToken());
+        assertSame(user, tokenCaptor.getValue().getUser());
+        assertEquals(encodedToken, token);
+        assertEquals(22, token.length());
+    }
+
+    @Test
+    @DisplayName("Should rotate the existing token in place when reissuing")
+    void reissue_whenTokenExists_shouldRotateInPlace() {
+        // Given: The user's current token is old enough to be replaced
+        when(tokenGenerator.generate()).thenReturn(tokenBytes);
+        when(tokenRepository.rotate(eq(1L), aryEq(tokenBytes), any(), any())).thenReturn(1);
+
+        // When: A token is reissued
+        String token = tokenStrategy.reissue(user);
+
+        // Then: The row is updated, with nothing deleted or inserted
+        verify(tokenRepository, never()).delete(any());
+        verify(tokenRepository, never()).save(any());
+        assertEquals(encodedToken, token);
+    }
+
+    @Test
+    @DisplayName("Should only rotate a token issued at least one resend interval ago")
+    void reissue_shouldBoundRotationByResendInterval() {
+        // Given
+        when(tokenGenerator.generate()).thenReturn(tokenBytes);
+        when(tokenRepository.rotate(eq(1L), aryEq(tokenBytes), any(), any())).thenReturn(1);
+
+        // When
+        tokenStrategy.reissue(user);
+
+        // Then: The condition accepts tokens expiring no later than one interval before the new one
+        ArgumentCaptor<LocalDateTime> expiry = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> latestExpiry = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(tokenRepository).rotate(eq(1L), aryEq(tokenBytes), expiry.capture(), latestExpiry.capture());
+        assertEquals(Duration.ofMinutes(1), Duration.between(latestExpiry.getValue(), expiry.getValue()));
+    }
+
+    @Test
+    @DisplayName("Should refuse with 429 when the current token was issued too recently")
+    void reissue_whenTokenTooRecent_shouldThrowRetryLater() {
+        // Given: The user's token was issued just now, so nothing is rotated
+        when(tokenGenerator.generate()).thenReturn(tokenBytes);
+        when(tokenRepository.rotate(eq(1L), aryEq(tokenBytes), any(), any())).thenReturn(0);
+        when(tokenRepository.findByUser(user)).thenReturn(Optional.of(new VerificationToken(new byte[16], user)));
+
+        // When & Then
+        RetryLaterException exception = assertThrows(RetryLaterException.class, () -> tokenStrategy.reissue(user));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        assertTrue(exception.getRetryAfter().compareTo(Duration.ofMinutes(1)) <= 0);
+        verify(tokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should insert a new token when the user has none left")
+    void reissue_whenNoToken_shouldInsert() {
+        // Given: The user's token row is gone
+        when(tokenGenerator.generate()).thenReturn(tokenBytes);
+        when(tokenRepository.rotate(eq(1L), aryEq(tokenBytes), any(), any())).thenReturn(0);
+        when(tokenRepository.findByUser(user)).thenReturn(Optional.empty());
+
+        // When
+        String token = tokenStrategy.reissue(user);
+
+        // Then
+        verify(tokenRepository).save(any(VerificationToken.class));
+        assertEquals(encodedToken, token);
+    }
+
+    @Test
+    @DisplayName("Should enable user when a valid confirmation token is provided")
+    void confirm_whenTokenIsValid_shouldEnableUser() {
+        // Given: A valid, unexpired token for a user that is not enabled yet
+        when(userRepository.enableByToken(aryEq(tokenBytes), any(LocalDateTime.class))).thenReturn(1);
+
+        // When: confirm is called
+        tokenStrategy.confirm(encodedToken);
+
+        // Then: The user was enabled with one bulk statement; the token is kept for repeat clicks
+        verifyNoInteractions(tokenRepository);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should throw BAD_REQUEST exception for an invalid confirmation token")
+    void confirm_whenTokenIsInvalid_shouldThrowException() {
+        // Given: The token does not exist
+        when(userRepository.enableByToken(aryEq(tokenBytes), any(LocalDateTime.class))).thenReturn(0);
+        when(tokenRepository.findExpiryByToken(aryEq(tokenBytes))).thenReturn(Optional.empty());
+
+        // When & Then: An exception should be thrown
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(encodedToken)
+        );
+        assertEquals("Invalid verification token", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should throw BAD_REQUEST exception when the account was already verified")
+    void confirm_whenUserAlreadyEnabled_shouldThrowException() {
+        // Given: The token is valid but its user was enabled already, e.g. by a concurrent click
+        when(userRepository.enableByToken(aryEq(tokenBytes), any(LocalDateTime.class))).thenReturn(0);
+        when(tokenRepository.findExpiryByToken(aryEq(tokenBytes)))
+                .thenReturn(Optional.of(LocalDateTime.now().plusMinutes(10)));
+
+        // When & Then: An exception should be thrown
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(encodedToken)
+        );
+        assertEquals("Account is already verified", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should throw BAD_REQUEST exception for a token that is not base64url")
+    void confirm_whenTokenIsMalformed_shouldThrowWithoutLookup() {
+        // When & Then: An exception should be thrown before touching the database
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm("not a token!")
+        );
+        assertEquals("Invalid verification token", exception.getMessage());
+        verifyNoInteractions(tokenRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("Should throw BAD_REQUEST exception for an expired confirmation token")
+    void confirm_whenTokenIsExpired_shouldThrowException() {
+        // Given: A token exists but it has expired, so the conditional update matches nothing
+        when(userRepository.enableByToken(aryEq(tokenBytes), any(LocalDateTime.class))).thenReturn(0);
+        when(tokenRepository.findExpiryByToken(aryEq(tokenBytes)))
+                .thenReturn(Optional.of(LocalDateTime.now().minusHours(1)));
+
+        // When & Then: An exception should be thrown
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            tokenStrategy.confirm(encodedToken)
+        );
+        assertEquals("Verification token has expired", exception.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Confirms stored verification tokens against a real database, where the conditional
+ * statements and the token's lifetime are what decide the outcome.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:token-confirmation;DB_CLOSE_DELAY=-1",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "auth-tools.hashing.calibrate=false",
+        "auth-tools.audit.enabled=false",
+        "auth-tools.mail.outbox.poll-interval=PT1H",
+        "auth-tools.token.mode=stored"
+})
+@DisplayName("Token Confirmation Tests")
+public class TokenConfirmationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VerificationTokenStrategy tokenStrategy;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Should answer a repeat click on the same link with already verified")
+    void confirmToken_whenConfirmedTwice_shouldReportAlreadyVerified() {
+        // Given: An unverified account with a freshly issued token
+        String token = transactionTemplate.execute(status -> {
+            User user = new User();
+            user.setEmail("double-click@example.com");
+            user.setPassword("{noop}unused");
+            userRepository.save(user);
+            return tokenStrategy.issue(user);
+        });
+
+        // When: The link is followed twice, as an email scanner and then the user would
+        userService.confirmToken(token);
+        RegistrationException exception = assertThrows(RegistrationException.class, () ->
+            userService.confirmToken(token)
+        );
+
+        // Then: The account is enabled and the second click is told so
+        assertTrue(userRepository.findByEmail("double-click@example.com").orElseThrow().isEnabled());
+        assertEquals("Account is already verified", exception.getMessage());
+    }
+}
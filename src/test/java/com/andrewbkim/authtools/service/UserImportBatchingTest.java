@@ -0,0 +1,85 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.repository.MailOutboxRepository;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.repository.VerificationTokenRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks against a real database that an import sending verification mail still inserts
+ * users, tokens and outbox messages in JDBC batches rather than one statement per row.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-import-batching;DB_CLOSE_DELAY=-1",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "auth-tools.hashing.calibrate=false",
+        "auth-tools.audit.enabled=false",
+        "auth-tools.mail.outbox.poll-interval=PT1H",
+        "auth-tools.import.batch-size=40",
+        "auth-tools.import.send-verification=true"
+})
+@DisplayName("User Import Batching Tests")
+public class UserImportBatchingTest {
+
+    private static final String BCRYPT_HASH = "$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+    private static final int ROWS = 40;
+
+    @Autowired
+    private UserImportService importService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository tokenRepository;
+
+    @Autowired
+    private MailOutboxRepository outboxRepository;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should batch user, token and outbox inserts when verification mail is sent")
+    void importUsers_whenSendVerification_shouldBatchInserts() throws IOException {
+        // Given: One full batch of unverified accounts
+        Path file = Files.write(directory.resolve("users.ndjson"), IntStream.range(0, ROWS)
+                .mapToObj(i -> "{\"email\":\"user" + i + "@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}")
+                .toList());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        UserImportResult result = importService.importUsers(file);
+        long inserts = statistics.getEntityInsertCount();
+        long statements = statistics.getPrepareStatementCount();
+
+        // Then: Every row got a user, a token and an email, sent as one batch per table
+        // (plus the email lookup and one call per id sequence), not one statement per row
+        assertEquals(ROWS, result.imported());
+        assertEquals(3L * ROWS, inserts);
+        assertTrue(statements <= 10, () -> statements + " statements prepared for " + inserts + " inserts");
+        assertEquals(ROWS, userRepository.count());
+        assertEquals(ROWS, tokenRepository.count());
+        assertEquals(ROWS, outboxRepository.count());
+    }
+}
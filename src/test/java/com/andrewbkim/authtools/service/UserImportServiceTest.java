@@ -0,0 +1,198 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.UserImportProperties;
+import com.andrewbkim.authtools.entity.User;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the UserImportService class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("User Import Service Tests")
+public class UserImportServiceTest {
+
+    private static final String BCRYPT_HASH = "$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private Validator validator;
+
+    @TempDir
+    Path directory;
+
+    private final UserImportProperties properties = new UserImportProperties();
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchSize(2);
+        properties.setHashingThreads(2);
+        importService = new UserImportService(userRepository, userService, entityManager,
+                new TransactionTemplate(transactionManager), passwordEncoder, validator, new ObjectMapper(), properties);
+    }
+
+    @Test
+    @DisplayName("Should hash plain passwords, keep BCrypt hashes and insert in committed batches")
+    void importUsers_shouldInsertValidRowsInBatches() throws IOException {
+        // Given: Three valid rows, one of them pre-hashed
+        Path file = write("users.ndjson",
+                "{\"email\":\"A@Example.com\",\"password\":\"password123\"}",
+                "{\"email\":\"b@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\",\"enabled\":true}",
+                "{\"email\":\"c@example.com\",\"password\":\"password456\"}");
+        when(passwordEncoder.encode(any())).thenAnswer(invocation -> "hashed:" + invocation.getArgument(0));
+
+        // When
+        UserImportResult result = importService.importUsers(file);
+
+        // Then: All rows are persisted, two batches are committed and the checkpoint is at the end
+        assertEquals(3, result.imported());
+        assertEquals(0, result.rejected());
+        ArgumentCaptor<User> users = ArgumentCaptor.forClass(User.class);
+        verify(entityManager, times(3)).persist(users.capture());
+        assertEquals("a@example.com", users.getAllValues().get(0).getEmail());
+        assertEquals("hashed:password123", users.getAllValues().get(0).getPassword());
+        assertEquals(BCRYPT_HASH, users.getAllValues().get(1).getPassword());
+        assertTrue(users.getAllValues().get(1).isEnabled());
+        verify(transactionManager, times(2)).commit(any());
+        verify(userService, never()).issueVerification(any());
+        assertEquals("3", Files.readString(directory.resolve("users.ndjson.checkpoint")));
+    }
+
+    @Test
+    @DisplayName("Should report bad, duplicate and existing rows and import the rest")
+    void importUsers_shouldReportRejectedRows() throws IOException {
+        // Given: A malformed line, a row without a password, an existing email and a duplicate
+        Path file = write("users.ndjson",
+                "not json",
+                "{\"email\":\"a@example.com\"}",
+                "{\"email\":\"taken@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}",
+                "{\"email\":\"b@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}",
+                "{\"email\":\"B@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}");
+        when(userRepository.findExistingEmails(List.of("taken@example.com"))).thenReturn(List.of("taken@example.com"));
+
+        // When
+        UserImportResult result = importService.importUsers(file);
+
+        // Then: One row is imported and every other line is in the report
+        assertEquals(1, result.imported());
+        assertEquals(4, result.rejected());
+        List<String> report = Files.readAllLines(directory.resolve("users.ndjson.errors.csv"));
+        assertEquals(4, report.size());
+        assertTrue(report.get(0).startsWith("1,,\"Unreadable line"));
+        assertTrue(report.get(1).startsWith("2,\"a@example.com\",\"Exactly one of password"));
+        assertEquals("3,\"taken@example.com\",\"Email already in use\"", report.get(2));
+        assertEquals("5,\"B@example.com\",\"Email appears more than once in this batch\"", report.get(3));
+    }
+
+    @Test
+    @DisplayName("Should resume after the checkpoint")
+    void importUsers_whenCheckpointExists_shouldSkipCommittedLines() throws IOException {
+        // Given: A file whose first two lines were imported by an earlier run
+        Path file = write("users.csv",
+                "email,password_hash",
+                "a@example.com," + BCRYPT_HASH,
+                "b@example.com," + BCRYPT_HASH);
+        Files.writeString(directory.resolve("users.csv.checkpoint"), "2");
+
+        // When
+        UserImportResult result = importService.importUsers(file);
+
+        // Then: Only the third line is imported
+        assertEquals(2, result.resumedAfter());
+        assertEquals(1, result.imported());
+        ArgumentCaptor<User> users = ArgumentCaptor.forClass(User.class);
+        verify(entityManager).persist(users.capture());
+        assertEquals("b@example.com", users.getValue().getEmail());
+    }
+
+    @Test
+    @DisplayName("Should report a batch's rejected lines only once the batch is checkpointed")
+    void importUsers_whenBatchFails_shouldNotReportItsLinesTwice() throws IOException {
+        // Given: A malformed line followed by a batch whose first commit fails
+        Path file = write("users.ndjson",
+                "not json",
+                "{\"email\":\"a@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}",
+                "{\"email\":\"b@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}");
+        doThrow(new IllegalStateException("Database unavailable")).doNothing().when(entityManager).flush();
+
+        // When: The first run fails, and a rerun goes through
+        assertThrows(IllegalStateException.class, () -> importService.importUsers(file));
+        Path report = directory.resolve("users.ndjson.errors.csv");
+        List<String> afterFailure = Files.readAllLines(report);
+        boolean checkpointed = Files.exists(directory.resolve("users.ndjson.checkpoint"));
+        importService.importUsers(file);
+
+        // Then: Nothing was reported for the failed batch, and the rerun reports the line once
+        assertEquals(List.of(), afterFailure);
+        assertFalse(checkpointed);
+        List<String> lines = Files.readAllLines(report);
+        assertEquals(1, lines.size());
+        assertTrue(lines.getFirst().startsWith("1,,\"Unreadable line"));
+    }
+
+    @Test
+    @DisplayName("Should queue verification emails for unverified accounts when asked to")
+    void importUsers_whenSendVerification_shouldIssueTokens() throws IOException {
+        // Given
+        properties.setSendVerification(true);
+        Path file = write("users.ndjson",
+                "{\"email\":\"a@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\"}",
+                "{\"email\":\"b@example.com\",\"password_hash\":\"" + BCRYPT_HASH + "\",\"enabled\":true}");
+
+        // When
+        importService.importUsers(file);
+
+        // Then: Only the unverified account gets a verification email
+        ArgumentCaptor<User> users = ArgumentCaptor.forClass(User.class);
+        verify(userService).issueVerification(users.capture());
+        assertEquals("a@example.com", users.getValue().getEmail());
+    }
+
+    @Test
+    @DisplayName("Should split CSV lines with quoted fields")
+    void splitCsv_shouldHonourQuotes() {
+        assertEquals(List.of("a@example.com", "pass,word", "say \"hi\"", ""),
+                UserImportReader.splitCsv("a@example.com,\"pass,word\",\"say \"\"hi\"\"\","));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines));
+    }
+}
@@ -1,11 +1,16 @@
 package com.andrewbkim.authtools.service;
 
+import com.andrewbkim.authtools.audit.AuditEvent;
+import com.andrewbkim.authtools.audit.AuditLog;
 import com.andrewbkim.authtools.dto.RegistrationRequest;
+import com.andrewbkim.authtools.entity.MailOutboxMessage;
 import com.andrewbkim.authtools.entity.User;
-import com.andrewbkim.authtools.entity.VerificationToken;
 import com.andrewbkim.authtools.exception.RegistrationException;
+import com.andrewbkim.authtools.metrics.AuthMetrics;
+import com.andrewbkim.authtools.repository.MailOutboxRepository;
 import com.andrewbkim.authtools.repository.UserRepository;
-import com.andrewbkim.authtools.repository.VerificationTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,13 +18,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.time.LocalDateTime;
+import java.sql.SQLException;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,13 +42,22 @@ public class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private VerificationTokenRepository tokenRepository;
+    private VerificationTokenStrategy tokenStrategy;
 
     @Mock
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private JavaMailSender mailSender;
+    private MailOutboxRepository outboxRepository;
+
+    @Mock
+    private RegisteredEmailFilter emailFilter;
+
+    @Mock
+    private AuditLog auditLog;
+
+    @Spy
+    private AuthMetrics metrics = new AuthMetrics(new SimpleMeterRegistry());
 
     @InjectMocks // Creates an instance of UserService and injects the mocks into it
     private UserService userService;
@@ -63,39 +77,58 @@ public class UserServiceTest {
         user.setEmail("test@example.com");
         user.setPassword("encodedPassword");
         user.setEnabled(false);
+
+        lenient().when(emailFilter.check(anyString())).thenReturn(RegisteredEmailFilter.Answer.UNKNOWN);
     }
 
     @Test
     @DisplayName("Should successfully register a new user with a unique email")
     void registerUser_whenEmailIsNew_shouldSucceed() {
-        // Given: The email is not already in use
-        when(userRepository.findByEmail(registrationRequest.getEmail())).thenReturn(Optional.empty());
+        // Given: The email is not already in use, entered with mixed case and whitespace
+        registrationRequest.setEmail("  Test@Example.com ");
         when(passwordEncoder.encode(registrationRequest.getPassword())).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+        when(tokenStrategy.issue(any(User.class))).thenReturn("new-token");
 
         // When: registerUser is called
         userService.registerUser(registrationRequest);
 
-        // Then: A new user should be saved with an encoded password
+        // Then: A new user should be inserted directly with a normalized email and an encoded password
+        verify(userRepository, never()).findByEmail(anyString());
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).save(userCaptor.capture());
+        verify(userRepository).saveAndFlush(userCaptor.capture());
         User savedUser = userCaptor.getValue();
         assertEquals("test@example.com", savedUser.getEmail());
         assertEquals("encodedPassword", savedUser.getPassword());
         assertFalse(savedUser.isEnabled());
 
-        // Then: A verification token should be created and saved
-        verify(tokenRepository).save(any(VerificationToken.class));
+        // Then: A verification token should be issued for the new user
+        verify(tokenStrategy).issue(savedUser);
+        verify(emailFilter).add("test@example.com");
+
+        // Then: A verification email should be queued in the outbox
+        ArgumentCaptor<MailOutboxMessage> mailCaptor = ArgumentCaptor.forClass(MailOutboxMessage.class);
+        verify(outboxRepository).save(mailCaptor.capture());
+        assertEquals("test@example.com", mailCaptor.getValue().getRecipient());
+        assertEquals(MailOutboxMessage.Status.PENDING, mailCaptor.getValue().getStatus());
+        assertTrue(mailCaptor.getValue().getBody().contains("token=new-token"));
 
-        // Then: A verification email should be sent
-        verify(mailSender).send(any(SimpleMailMessage.class));
+        // Then: The registration is audited with the token it issued
+        verify(auditLog).recordAfterCommit(AuditEvent.Type.REGISTER, "test@example.com", "new-token");
+
+        // Then: Each phase of the registration was timed
+        for (String phase : new String[]{"password_hash", "user_save", "token_save", "mail_enqueue"}) {
+            assertEquals(1, metrics.registry().get("auth.phase").tag("phase", phase).timer().count(), phase);
+        }
     }
 
     @Test
     @DisplayName("Should throw CONFLICT exception when registering with an existing email")
     void registerUser_whenEmailExists_shouldThrowException() {
-        // Given: The email is already in use
-        when(userRepository.findByEmail(registrationRequest.getEmail())).thenReturn(Optional.of(user));
+        // Given: The email is already in use, so the unique index rejects the insert
+        when(passwordEncoder.encode(registrationRequest.getPassword())).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException("duplicate"), "PUBLIC.UK_APP_USER_EMAIL_INDEX_A")));
 
         // When & Then: Calling registerUser should throw a RegistrationException
         RegistrationException exception = assertThrows(RegistrationException.class, () ->
@@ -105,57 +138,103 @@ public class UserServiceTest {
         assertEquals("Email already in use", exception.getMessage());
         assertEquals(HttpStatus.CONFLICT, exception.getStatus());
 
-        // Then: No interactions with other mocks should occur
-        verify(passwordEncoder, never()).encode(anyString());
-        verify(tokenRepository, never()).save(any());
-        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+        // Then: No token or email should be produced
+        verify(tokenStrategy, never()).issue(any());
+        verify(outboxRepository, never()).save(any());
+
+        // Then: The rejection is audited
+        verify(auditLog).record(AuditEvent.Type.REGISTER, AuditEvent.Outcome.REJECTED,
+                "test@example.com", null, "Email already in use");
     }
 
     @Test
-    @DisplayName("Should enable user when a valid confirmation token is provided")
-    void confirmToken_whenTokenIsValid_shouldEnableUser() {
-        // Given: A valid, unexpired token exists
-        VerificationToken token = new VerificationToken("valid-token", user);
-        when(tokenRepository.findByToken("valid-token")).thenReturn(Optional.of(token));
-
-        // When: confirmToken is called
-        userService.confirmToken("valid-token");
+    @DisplayName("Should skip the lookup and go straight to the insert when the filter rules the email out")
+    void registerUser_whenFilterSaysAbsent_shouldNotQuery() {
+        // Given: The filter knows the email is not registered
+        when(emailFilter.check("test@example.com")).thenReturn(RegisteredEmailFilter.Answer.ABSENT);
+        when(passwordEncoder.encode(registrationRequest.getPassword())).thenReturn("encodedPassword");
+        when(tokenStrategy.issue(any(User.class))).thenReturn("new-token");
 
-        // Then: The user's enabled status should be true
-        ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).save(userCaptor.capture());
-        assertTrue(userCaptor.getValue().isEnabled());
+        // When: registerUser is called
+        userService.registerUser(registrationRequest);
 
-        // Then: The token should be deleted
-        verify(tokenRepository).delete(token);
+        // Then: No lookup ran before the insert
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(userRepository).saveAndFlush(any(User.class));
     }
 
     @Test
-    @DisplayName("Should throw BAD_REQUEST exception for an invalid confirmation token")
-    void confirmToken_whenTokenIsInvalid_shouldThrowException() {
-        // Given: The token does not exist
-        when(tokenRepository.findByToken("invalid-token")).thenReturn(Optional.empty());
+    @DisplayName("Should reject a registered email found through the filter before hashing the password")
+    void registerUser_whenFilterSaysMaybeAndEmailExists_shouldRejectBeforeHashing() {
+        // Given: The filter may have seen the email, and it is registered
+        when(emailFilter.check("test@example.com")).thenReturn(RegisteredEmailFilter.Answer.MAYBE);
+        when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
 
-        // When & Then: An exception should be thrown
+        // When & Then: The registration is refused without hashing or inserting
         RegistrationException exception = assertThrows(RegistrationException.class, () ->
-            userService.confirmToken("invalid-token")
+            userService.registerUser(registrationRequest)
         );
-        assertEquals("Invalid verification token", exception.getMessage());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        verifyNoInteractions(passwordEncoder);
+        verify(userRepository, never()).saveAndFlush(any());
     }
 
     @Test
-    @DisplayName("Should successfully resend verification token for an unverified user")
-    void confirmToken_whenTokenIsExpired_shouldThrowException() {
-        // Given: A token exists but it has expired
-        VerificationToken token = new VerificationToken("expired-token", user);
-        token.setExpiryDate(LocalDateTime.now().minusHours(1)); // Set expiry in the past
-        when(tokenRepository.findByToken("expired-token")).thenReturn(Optional.of(token));
+    @DisplayName("Should register and count a false positive when the filter was wrong")
+    void registerUser_whenFilterSaysMaybeAndEmailIsNew_shouldRecordFalsePositive() {
+        // Given: The filter may have seen the email, but it is not registered
+        when(emailFilter.check("test@example.com")).thenReturn(RegisteredEmailFilter.Answer.MAYBE);
+        when(userRepository.existsByEmail("test@example.com")).thenReturn(false);
+        when(passwordEncoder.encode(registrationRequest.getPassword())).thenReturn("encodedPassword");
+        when(tokenStrategy.issue(any(User.class))).thenReturn("new-token");
 
-        // When & Then: An exception should be thrown
-        RegistrationException exception = assertThrows(RegistrationException.class, () ->
-            userService.confirmToken("expired-token")
-        );
-        assertEquals("Verification token has expired", exception.getMessage());
+        // When: registerUser is called
+        userService.registerUser(registrationRequest);
+
+        // Then: The user is saved and the miss is recorded
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(emailFilter).recordFalsePositive();
+    }
+
+    @Test
+    @DisplayName("Should propagate integrity violations that are not duplicate emails")
+    void registerUser_whenOtherConstraintFails_shouldRethrow() {
+        // Given: The insert fails for an unrelated reason
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException("not null"), null));
+        when(passwordEncoder.encode(registrationRequest.getPassword())).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(failure);
+
+        // When & Then: The original exception surfaces unchanged
+        assertSame(failure, assertThrows(DataIntegrityViolationException.class, () ->
+            userService.registerUser(registrationRequest)
+        ));
+    }
+
+    @Test
+    @DisplayName("Should delegate token confirmation to the token strategy")
+    void confirmToken_shouldDelegateToTokenStrategy() {
+        // When: confirmToken is called
+        userService.confirmToken("valid-token");
+
+        // Then: The token strategy validates the token and enables the account
+        verify(tokenStrategy).confirm("valid-token");
+        verify(auditLog).recordAfterCommit(AuditEvent.Type.CONFIRM, null, "valid-token");
+    }
+
+    @Test
+    @DisplayName("Should audit a rejected confirmation with the token it was given")
+    void confirmToken_whenRejected_shouldAuditRejection() {
+        // Given: The token has expired
+        doThrow(RegistrationException.TOKEN_EXPIRED).when(tokenStrategy).confirm("old-token");
+
+        // When & Then: The rejection reaches the caller and is audited
+        assertSame(RegistrationException.TOKEN_EXPIRED, assertThrows(RegistrationException.class, () ->
+            userService.confirmToken("old-token")
+        ));
+        verify(auditLog).record(AuditEvent.Type.CONFIRM, AuditEvent.Outcome.REJECTED,
+                null, "old-token", "Verification token has expired");
+        verify(auditLog, never()).recordAfterCommit(any(), any(), any());
     }
 
     @Test
@@ -163,15 +242,32 @@ public class UserServiceTest {
     void resendVerificationToken_whenUserExistsAndNotVerified_shouldSucceed() {
         // Given: An unverified user exists
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
-        // Assume no old token exists for simplicity in this test
-        when(tokenRepository.findByUser(user)).thenReturn(Optional.empty());
+        when(tokenStrategy.reissue(user)).thenReturn("new-token");
+
+        // When: resendVerificationToken is called
+        userService.resendVerificationToken("test@example.com");
+
+        // Then: A new token should be issued and an email should be queued
+        verify(tokenStrategy).reissue(user);
+        verify(outboxRepository).save(any(MailOutboxMessage.class));
+        verify(auditLog).recordAfterCommit(AuditEvent.Type.RESEND, "test@example.com", "new-token");
+    }
+
+    @Test
+    @DisplayName("Should still look up the email when the filter has not seen it")
+    void resendVerificationToken_whenFilterSaysAbsent_shouldStillQuery() {
+        // Given: The user registered on another node since this node's filter was refreshed
+        when(emailFilter.check("test@example.com")).thenReturn(RegisteredEmailFilter.Answer.ABSENT);
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(tokenStrategy.reissue(user)).thenReturn("new-token");
 
         // When: resendVerificationToken is called
         userService.resendVerificationToken("test@example.com");
 
-        // Then: A new token should be saved and an email should be sent
-        verify(tokenRepository).save(any(VerificationToken.class));
-        verify(mailSender).send(any(SimpleMailMessage.class));
+        // Then: The database was asked and the token resent
+        verify(tokenStrategy).reissue(user);
+        verify(outboxRepository).save(any(MailOutboxMessage.class));
+        verify(emailFilter, never()).recordFalsePositive();
     }
 
     @Test
@@ -186,6 +282,7 @@ public class UserServiceTest {
             userService.resendVerificationToken("test@example.com")
         );
         assertEquals("Account is already verified", exception.getMessage());
+        verify(tokenStrategy, never()).reissue(any());
     }
 
 }
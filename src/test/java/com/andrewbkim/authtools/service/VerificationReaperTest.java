@@ -0,0 +1,155 @@
+package com.andrewbkim.authtools.service;
+
+import com.andrewbkim.authtools.config.ReaperProperties;
+import com.andrewbkim.authtools.repository.UserRepository;
+import com.andrewbkim.authtools.repository.VerificationTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the VerificationReaper class.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Verification Reaper Tests")
+public class VerificationReaperTest {
+
+    @Mock
+    private VerificationTokenRepository tokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JobLeases leases;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private VerificationReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        ReaperProperties properties = new ReaperProperties();
+        properties.setChunkSize(2);
+        reaper = new VerificationReaper(tokenRepository, userRepository,
+                new TransactionTemplate(transactionManager), leases, properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should delete expired tokens chunk by chunk using the keyset position")
+    void purgeExpiredTokens_shouldWalkChunksByKeyset() {
+        // Given: Three expired tokens, returned two at a time
+        LocalDateTime cutoff = LocalDateTime.now();
+        when(tokenRepository.findExpiredIds(cutoff, 0L, Limit.of(2))).thenReturn(List.of(1L, 2L));
+        when(tokenRepository.findExpiredIds(cutoff, 2L, Limit.of(2))).thenReturn(List.of(5L));
+        when(tokenRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(tokenRepository.deleteByIdIn(List.of(5L))).thenReturn(1);
+        when(leases.tryAcquire(eq(VerificationReaper.JOB), any())).thenReturn(true);
+
+        // When: The tokens are purged with plenty of time budget
+        int purged = reaper.purgeExpiredTokens(cutoff, System.nanoTime() + 1_000_000_000L);
+
+        // Then: Both chunks were bulk-deleted, each in its own transaction
+        assertEquals(3, purged);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should stop after the current chunk once the time budget is spent")
+    void purgeExpiredTokens_whenBudgetExhausted_shouldStop() {
+        // Given: A full chunk of expired tokens and more behind it
+        LocalDateTime cutoff = LocalDateTime.now();
+        when(tokenRepository.findExpiredIds(cutoff, 0L, Limit.of(2))).thenReturn(List.of(1L, 2L));
+        when(tokenRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+
+        // When: The deadline has already passed
+        int purged = reaper.purgeExpiredTokens(cutoff, System.nanoTime());
+
+        // Then: Only one chunk was processed
+        assertEquals(2, purged);
+        verify(tokenRepository, times(1)).findExpiredIds(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should stop after the current chunk once the lease is lost")
+    void purgeExpiredTokens_whenLeaseLost_shouldStop() {
+        // Given: A full chunk of expired tokens, and another node has taken over the lease
+        LocalDateTime cutoff = LocalDateTime.now();
+        when(tokenRepository.findExpiredIds(cutoff, 0L, Limit.of(2))).thenReturn(List.of(1L, 2L));
+        when(tokenRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(leases.tryAcquire(eq(VerificationReaper.JOB), any())).thenReturn(false);
+
+        // When: The tokens are purged with plenty of time budget
+        int purged = reaper.purgeExpiredTokens(cutoff, System.nanoTime() + 1_000_000_000L);
+
+        // Then: Only one chunk was processed
+        assertEquals(2, purged);
+        verify(tokenRepository, times(1)).findExpiredIds(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should delete tokens of abandoned accounts before the accounts themselves")
+    void purgeUnverifiedUsers_shouldDeleteTokensThenUsers() {
+        // Given: One abandoned account
+        LocalDateTime cutoff = LocalDateTime.now();
+        when(userRepository.findUnverifiedIdsCreatedBefore(cutoff, 0L, Limit.of(2))).thenReturn(List.of(7L));
+        when(userRepository.deleteUnverifiedByIdIn(List.of(7L))).thenReturn(1);
+
+        // When: Unverified users are purged
+        int purged = reaper.purgeUnverifiedUsers(cutoff, System.nanoTime() + 1_000_000_000L);
+
+        // Then: Its token goes first, then the account
+        assertEquals(1, purged);
+        var inOrder = inOrder(tokenRepository, userRepository);
+        inOrder.verify(tokenRepository).deleteByUserIdIn(List.of(7L));
+        inOrder.verify(userRepository).deleteUnverifiedByIdIn(List.of(7L));
+    }
+
+    @Test
+    @DisplayName("Should record rows purged per run")
+    void reap_shouldRecordMetrics() {
+        // Given: This node gets the lease and there is nothing to purge
+        when(leases.tryAcquire(eq(VerificationReaper.JOB), any())).thenReturn(true);
+        when(tokenRepository.findExpiredIds(any(), any(), any())).thenReturn(List.of());
+        when(userRepository.findUnverifiedIdsCreatedBefore(any(), any(), any())).thenReturn(List.of());
+
+        // When: The reaper runs
+        reaper.reap();
+
+        // Then: One observation per kind is recorded
+        assertEquals(1, meterRegistry.get("auth.reaper.purged").tag("type", "token").summary().count());
+        assertEquals(1, meterRegistry.get("auth.reaper.purged").tag("type", "user").summary().count());
+        verify(leases).release(VerificationReaper.JOB);
+    }
+
+    @Test
+    @DisplayName("Should skip the run while another node holds the lease")
+    void reap_whenLeaseHeldElsewhere_shouldSkip() {
+        // Given: Another node is reaping
+        when(leases.tryAcquire(eq(VerificationReaper.JOB), any())).thenReturn(false);
+
+        // When: The reaper runs
+        reaper.reap();
+
+        // Then: Nothing is queried, deleted or released
+        verifyNoInteractions(tokenRepository, userRepository);
+        verify(leases, never()).release(any());
+    }
+}
@@ -0,0 +1,160 @@
+package com.andrewbkim.authtools.support;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal in-process SMTP server for tests. It speaks just enough of RFC 5321 for
+ * JavaMail (no AUTH, no STARTTLS), accepts every message and keeps it in memory.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+    public record ReceivedMessage(List<String> recipients, String subject, String body) {
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BlockingQueue<ReceivedMessage> messages = new LinkedBlockingQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    public FakeSmtpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+        executor.submit(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of SMTP connections accepted so far
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Waits for the next received message.
+     * @return the message, or {@code null} if none arrived within the timeout
+     */
+    public ReceivedMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return messages.poll(timeout, unit);
+    }
+
+    /**
+     * Removes and returns every message received so far.
+     */
+    public List<ReceivedMessage> drain() {
+        List<ReceivedMessage> drained = new ArrayList<>();
+        messages.drainTo(drained);
+        return drained;
+    }
+
+    /**
+     * Closes every open client connection without a reply, like a relay timing out idle sessions.
+     */
+    public void dropConnections() throws IOException {
+        for (Socket socket : open) {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                open.add(socket);
+                executor.submit(() -> handle(socket));
+            } catch (IOException e) {
+                if (running) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            reply(out, "220 localhost fake SMTP ready");
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "MAIL" -> {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        recipients.add(line.substring(line.indexOf(':') + 1).trim().replaceAll("[<>]", ""));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        messages.add(parse(List.copyOf(recipients), readData(in)));
+                        reply(out, "250 OK");
+                    }
+                    case "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    private static String readData(BufferedReader in) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+        }
+        return data.toString();
+    }
+
+    private static ReceivedMessage parse(List<String> recipients, String data) {
+        try {
+            MimeMessage message = new MimeMessage(Session.getInstance(new Properties()),
+                    new ByteArrayInputStream(data.getBytes(StandardCharsets.US_ASCII)));
+            return new ReceivedMessage(recipients, message.getSubject(), String.valueOf(message.getContent()));
+        } catch (Exception e) {
+            return new ReceivedMessage(recipients, null, data);
+        }
+    }
+
+    private static void reply(Writer out, String response) throws IOException {
+        out.write(response + "\r\n");
+        out.flush();
+    }
+}